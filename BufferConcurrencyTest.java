@@ -0,0 +1,86 @@
+import StorageManager.StorageManager;
+import Catalog.TableSchema;
+import AttributeInfo.Attribute;
+import AttributeInfo.IntegerDefinition;
+import Common.Page;
+import Common.Logger;
+import Common.Operators.ScanOperator;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class BufferConcurrencyTest {
+    public static void main(String[] args) {
+        Logger.initDebug(new String[]{});
+
+        try {
+            StorageManager.initDatabase("concurrencydb", 400, 6, true);
+            StorageManager store = StorageManager.getStorageManager();
+
+            System.out.println("\n=== Testing Concurrent Buffer Access ===\n");
+
+            List<Attribute> attrs = new ArrayList<>();
+            attrs.add(new Attribute("num", new IntegerDefinition(null, true, false), null));
+            attrs.add(new Attribute("doubled", new IntegerDefinition(null, false, false), null));
+
+            TableSchema table = new TableSchema("ScanTable", attrs);
+            store.CreateTable(table);
+            for (int i = 1; i <= 2000; i++) {
+                store.insertSingleRow("ScanTable", Arrays.asList(i, i * 2), -1);
+            }
+
+            // a pinned page stays buffered while the whole table is read through a buffer of 6 frames
+            Page pinned = store.pinFirstPage("ScanTable");
+            Page page = pinned;
+            while (page.getNextPage() != -1) {
+                page = store.select(page.getNextPage(), "ScanTable");
+            }
+            boolean stayed = store.select(pinned.getPageAddress(), "ScanTable") == pinned;
+            store.unpin(pinned);
+            System.out.println(stayed ? "✓ PASSED: pinned page not evicted"
+                    : "✗ FAILED: pinned page was evicted");
+
+            // eight threads scan the table at the same time, each must see every row in order
+            ExecutorService threads = Executors.newFixedThreadPool(8);
+            List<Future<Boolean>> scans = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                scans.add(threads.submit(() -> {
+                    for (int pass = 0; pass < 5; pass++) {
+                        ScanOperator scan = new ScanOperator("ScanTable");
+                        scan.open();
+                        int expected = 1;
+                        ArrayList<Object> row;
+                        while ((row = scan.next()) != null) {
+                            if ((int) row.get(0) != expected || (int) row.get(1) != expected * 2) {
+                                return false;
+                            }
+                            expected++;
+                        }
+                        scan.close();
+                        if (expected != 2001) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            boolean allRows = true;
+            for (Future<Boolean> scan : scans) {
+                allRows &= scan.get(2, TimeUnit.MINUTES);
+            }
+            threads.shutdown();
+            System.out.println(allRows ? "✓ PASSED: concurrent scans read every row"
+                    : "✗ FAILED: a concurrent scan read wrong rows");
+
+            boolean found = true;
+            for (int i = 1; i <= 2000; i += 97) {
+                found &= store.selectByPrimaryKey("ScanTable", i) != null;
+            }
+            System.out.println(found ? "✓ PASSED: index lookups after concurrent scans"
+                    : "✗ FAILED: index lookup failed");
+
+        } catch (Exception e) {
+            System.out.println("ERROR: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
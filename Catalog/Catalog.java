@@ -7,15 +7,16 @@ import StorageManager.StorageManager;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Catalog {
 
     /*/
     This keeps the catalog as a singleton (aka only one catalog can exist)
      */
-    private static Catalog instance;
+    private static volatile Catalog instance;
 
-    public static void init(String dbPath, int pageSize) {
+    public static synchronized void init(String dbPath, int pageSize) {
         if (instance == null) {
             instance = new Catalog(dbPath, pageSize);
         }
@@ -38,29 +39,35 @@ public class Catalog {
      */
     private final Map<String, TableSchema> tables;
     private final String catalogPath;
-    private int firstFreeAddress;
 
-    // NOTE: firstFreePage stored here for simplicity
-    // May move to StorageManager metadata in later phases.
     private int pageSize;        // Required for DB restart
-    private LinkedList<Integer> firstFreePage;   // list of empty pages
+    private final FreeSpaceMap freeSpaceMap;   // free pages and the end of the used part of the file
+    // first and last keys of the pages of each table, only kept in memory
+    private final Map<String, FenceKeys> fenceKeys;
+    // value ranges of the pages of each table, only kept in memory
+    private final Map<String, ZoneMaps> zoneMaps;
 
     private Catalog(String dbPath, int pageSize) {
-        this.tables = new HashMap<>();
+        // sessions of the server look tables up while another session's statement creates or drops temp tables
+        this.tables = new ConcurrentHashMap<>();
         this.catalogPath = dbPath + "/catalog.bin";
 
         // This ensures the directory exists before we try to save/load anything.
         File catalogFile = new File(dbPath);
         catalogFile.mkdirs();
-        this.firstFreeAddress = 0;
         this.pageSize = pageSize;      // Default if no file exists
-        this.firstFreePage = new LinkedList<Integer>();       // by default empty list of pages
+        this.freeSpaceMap = new FreeSpaceMap(pageSize);       // by default no pages are used
+        this.fenceKeys = new ConcurrentHashMap<>();
+        this.zoneMaps = new ConcurrentHashMap<>();
     }
 
     /*
     Getters and setters for page info
      */
-    public void setPageSize(int pageSize) {this.pageSize = pageSize;}
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+        this.freeSpaceMap.setPageSize(pageSize);
+    }
 
     public int getPageSize(){
         return this.pageSize;
@@ -70,25 +77,10 @@ public class Catalog {
         return this.tables.size();
     }
 
-    public int getFirstFreePage() {
-        return this.firstFreePage.getFirst();
-    }
-
-    public LinkedList<Integer> getAllFreePages() {return this.firstFreePage;}
+    public FreeSpaceMap getFreeSpaceMap() {return this.freeSpaceMap;}
 
     public boolean hasFreePages() {
-        return !this.firstFreePage.isEmpty();
-    }
-
-    public int getFirstFreeAddress() {return firstFreeAddress;}
-    public void setFirstFreeAddress(int unusedAddress) {this.firstFreeAddress = unusedAddress;}
-
-    public void addFirstFreePage(int pageAddress) {
-        this.firstFreePage.addFirst(pageAddress);
-    }
-
-    public void removeFirstFreePage() {
-        this.firstFreePage.removeFirst();
+        return this.freeSpaceMap.hasFreePages();
     }
 
     /*
@@ -105,6 +97,50 @@ public class Catalog {
 
     public void dropTable(String tableName) {
         tables.remove(tableName.toLowerCase());
+        fenceKeys.remove(tableName.toLowerCase());
+        zoneMaps.remove(tableName.toLowerCase());
+        freeSpaceMap.release(tableName.toLowerCase());
+    }
+
+    /**
+     * Gets the fence keys of a table
+     * @param tableName: name of the table
+     * @return the fence keys, or null if they have not been built since the database started
+     */
+    public FenceKeys getFenceKeys(String tableName) {
+        return fenceKeys.get(tableName.toLowerCase());
+    }
+
+    public void setFenceKeys(String tableName, FenceKeys keys) {
+        if (keys == null) {
+            fenceKeys.remove(tableName.toLowerCase());
+        } else {
+            fenceKeys.put(tableName.toLowerCase(), keys);
+        }
+    }
+
+    /**
+     * Gets the zone maps of a table
+     * @param tableName: name of the table
+     * @return the zone maps, or null if they have not been made since the database started or the columns of the
+     * table changed since
+     */
+    public ZoneMaps getZoneMaps(String tableName) {
+        ZoneMaps zones = zoneMaps.get(tableName.toLowerCase());
+        TableSchema table = getTable(tableName);
+        if (zones != null && (table == null || zones.getVersion() != table.getVersion())) {
+            zoneMaps.remove(tableName.toLowerCase(), zones);
+            return null;
+        }
+        return zones;
+    }
+
+    public void setZoneMaps(String tableName, ZoneMaps zones) {
+        if (zones == null) {
+            zoneMaps.remove(tableName.toLowerCase());
+        } else {
+            zoneMaps.put(tableName.toLowerCase(), zones);
+        }
     }
 
     public TableSchema getTable(String tableName) {
@@ -165,7 +201,15 @@ public class Catalog {
         table.renameTable(newTableName);
         tables.remove(oldTableName);
         tables.put(newTableName.toLowerCase(), table);
+        // the pages now belong to the new name, its fence keys and zone maps are built again when they are needed
+        fenceKeys.remove(oldTableName.toLowerCase());
+        fenceKeys.remove(newTableName.toLowerCase());
+        zoneMaps.remove(oldTableName.toLowerCase());
+        zoneMaps.remove(newTableName.toLowerCase());
+        freeSpaceMap.release(oldTableName.toLowerCase());
         StorageManager storageManager = StorageManager.getStorageManager();
+        // pages in the buffer are renamed first, reading the rest can evict them and the old name is gone
+        storageManager.renameBufferedPages(oldTableName, newTableName);
         Page currPage = storageManager.selectFirstPage(newTableName);
         while(true){
             if (!currPage.getTableName().equalsIgnoreCase(newTableName)){
@@ -177,6 +221,8 @@ public class Catalog {
                 break;
             }
         }
+        // temporary tables are not indexed, build the index now that it is a real table
+        storageManager.ensureIndex(newTableName);
 
     }
 
@@ -0,0 +1,81 @@
+package Catalog;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summary of the pages of a table, the first and last primary key of every page that holds records. The pages of a
+ * table are in primary key order so the page a key belongs in is the one with the largest first key below it,
+ * which is found without reading any pages. The summary is only kept in memory, it is built from the page chain
+ * the first time it is needed after a table is created or the database starts.
+ */
+public class FenceKeys {
+    private final TreeMap<Object, Integer> pagesByFirstKey;
+    private final Map<Integer, Object[]> fences;
+
+    public FenceKeys() {
+        this.pagesByFirstKey = new TreeMap<>();
+        this.fences = new HashMap<>();
+    }
+
+    /**
+     * Finds the page holding the largest first key that is less than or equal to the given key. A record with this
+     * key belongs in that page or at the start of the one after it.
+     * @param key the primary key value
+     * @return the address of the page, or null if the key is below every page
+     */
+    public Integer findPage(Object key) {
+        Map.Entry<Object, Integer> entry = pagesByFirstKey.floorEntry(key);
+        return entry == null ? null : entry.getValue();
+    }
+
+    /**
+     * Gets the first key of the page that follows a page, pages without records are skipped
+     * @param address the address of the page, a page without records is taken to be the first page of the table
+     * @return the first key, or null if no page after it holds records
+     */
+    public Object nextFirstKey(int address) {
+        Object[] fence = fences.get(address);
+        if (fence == null) {
+            return pagesByFirstKey.isEmpty() ? null : pagesByFirstKey.firstKey();
+        }
+        return pagesByFirstKey.higherKey(fence[0]);
+    }
+
+    public Object getFirstKey(int address) {
+        Object[] fence = fences.get(address);
+        return fence == null ? null : fence[0];
+    }
+
+    public Object getLastKey(int address) {
+        Object[] fence = fences.get(address);
+        return fence == null ? null : fence[1];
+    }
+
+    /**
+     * Sets the first and last key of a page
+     * @param address the address of the page
+     * @param firstKey the primary key of the first record in the page
+     * @param lastKey the primary key of the last record in the page
+     */
+    public void setPage(int address, Object firstKey, Object lastKey) {
+        Object[] fence = fences.get(address);
+        if (fence != null && !fence[0].equals(firstKey)) {
+            pagesByFirstKey.remove(fence[0], address);
+        }
+        pagesByFirstKey.put(firstKey, address);
+        fences.put(address, new Object[]{firstKey, lastKey});
+    }
+
+    /**
+     * Removes a page that no longer holds records or is no longer part of the table
+     * @param address the address of the page
+     */
+    public void removePage(int address) {
+        Object[] fence = fences.remove(address);
+        if (fence != null) {
+            pagesByFirstKey.remove(fence[0], address);
+        }
+    }
+}
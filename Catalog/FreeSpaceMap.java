@@ -0,0 +1,158 @@
+package Catalog;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Free space map of database.bin, a bitmap with one bit per page that is set while the page is free. Pages at or
+ * past the end address have never been handed out.
+ * Tables grow in extents: when a table needs another page and there is no free page, the file is extended by
+ * EXTENT_PAGES pages at once. The table gets the first and the rest are kept for its next pages, so the page chain
+ * of a growing table stays in physical order for read-ahead. Kept pages are still free, other allocations only use
+ * them once there is no other free page. Which pages are kept is only remembered in memory, after a restart they
+ * are ordinary free pages.
+ * The map is synchronized since queries of different sessions can create temp tables at the same time.
+ */
+public class FreeSpaceMap {
+    public static final int EXTENT_PAGES = 8;
+
+    private int pageSize;
+    private int endPage;
+    private final BitSet free;
+    // free pages that are not kept for a table
+    private final BitSet open;
+    // owner -> {next kept page, end of the kept pages}
+    private final Map<String, int[]> extents;
+    // there is no open page below this one
+    private int openHint;
+
+    public FreeSpaceMap(int pageSize) {
+        this.pageSize = pageSize;
+        this.free = new BitSet();
+        this.open = new BitSet();
+        this.extents = new HashMap<>();
+    }
+
+    public synchronized void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @return the address past the last page that has been handed out
+     */
+    public synchronized int getEndAddress() {
+        return endPage * pageSize;
+    }
+
+    public synchronized void setEndAddress(int address) {
+        this.endPage = address / pageSize;
+    }
+
+    public synchronized boolean hasFreePages() {
+        return !free.isEmpty();
+    }
+
+    /**
+     * Hands out a page for a table, the next page kept for the table if it has one, else a free page, else the
+     * first page of a new extent for the table
+     * @param owner the table the page is for
+     * @return the address of the page
+     */
+    public synchronized int allocate(String owner) {
+        int[] extent = extents.get(owner);
+        if (extent != null) {
+            while (extent[0] < extent[1]) {
+                int page = extent[0]++;
+                if (free.get(page)) {
+                    take(page);
+                    return page * pageSize;
+                }
+            }
+            extents.remove(owner);
+        }
+        int page = open.nextSetBit(openHint);
+        if (page >= 0) {
+            take(page);
+            return page * pageSize;
+        }
+        page = endPage;
+        endPage += EXTENT_PAGES;
+        free.set(page + 1, endPage);
+        extents.put(owner, new int[]{page + 1, endPage});
+        return page * pageSize;
+    }
+
+    /**
+     * Hands out a single page that does not belong to a growing table, such as the first page of a table or an
+     * index node. Pages kept for tables are used before the file is extended.
+     * @return the address of the page
+     */
+    public synchronized int allocate() {
+        int page = open.nextSetBit(openHint);
+        if (page < 0) {
+            page = free.nextSetBit(0);
+        }
+        if (page < 0) {
+            page = endPage++;
+        } else {
+            take(page);
+        }
+        return page * pageSize;
+    }
+
+    /**
+     * Gives a page back
+     * @param address the address of the page
+     */
+    public synchronized void free(int address) {
+        int page = address / pageSize;
+        free.set(page);
+        open.set(page);
+        openHint = Math.min(openHint, page);
+    }
+
+    /**
+     * Gives the pages kept for a table that it has not used to everyone, called when the table is dropped
+     * @param owner the table
+     */
+    public synchronized void release(String owner) {
+        int[] extent = extents.remove(owner);
+        if (extent != null) {
+            for (int page = extent[0]; page < extent[1]; page++) {
+                if (free.get(page)) {
+                    open.set(page);
+                    openHint = Math.min(openHint, page);
+                }
+            }
+        }
+    }
+
+    private void take(int page) {
+        free.clear(page);
+        open.clear(page);
+        if (page == openHint) {
+            openHint++;
+        }
+    }
+
+    /**
+     * @return the bitmap as it is stored in catalog.bin
+     */
+    public synchronized long[] toLongArray() {
+        return free.toLongArray();
+    }
+
+    /**
+     * Replaces the bitmap with one read from catalog.bin, no pages are kept for any table
+     * @param bitmap the stored bitmap
+     */
+    public synchronized void load(long[] bitmap) {
+        free.clear();
+        free.or(BitSet.valueOf(bitmap));
+        open.clear();
+        open.or(free);
+        extents.clear();
+        openHint = 0;
+    }
+}
@@ -7,6 +7,9 @@ public class TableSchema {
     private String tableName;
     private List<Attribute> attributes;
     private int rootPageID;
+    private int indexRootPageID = -1; // -1 means the table has no primary key index
+    private int version; // counts attribute changes
+    private boolean columnar; // pages are written in the columnar layout
 
     // Constructor used by Parsers/Executors. PageID is set to default because yall don't have access to that info from there
     public TableSchema(String tableName, List<Attribute> attributes) {
@@ -37,6 +40,39 @@ public class TableSchema {
         this.rootPageID = id;
     }
 
+    public int getIndexRootPageID() {
+        return indexRootPageID;
+    }
+
+    public void setIndexRootPageID(int id) {
+        this.indexRootPageID = id;
+    }
+
+    public boolean isColumnar() {
+        return columnar;
+    }
+
+    public void setColumnar(boolean columnar) {
+        this.columnar = columnar;
+    }
+
+    public boolean hasIndex() {
+        return indexRootPageID != -1;
+    }
+
+    /**
+     * Returns the index of the primary key attribute. Only the first primary key attribute is used for ordering
+     * @return the index of the primary key or null if the table has no primary key
+     */
+    public Integer getPrimaryKeyIndex() {
+        for (int i = 0; i < attributes.size(); i++) {
+            if (attributes.get(i).getDefinition().getIsPrimary()) {
+                return i;
+            }
+        }
+        return null;
+    }
+
     public int getRecordSize() {
         int size = 0;
         for (Attribute attr : attributes) {
@@ -52,12 +88,22 @@ public class TableSchema {
             }
         }
         attributes.add(attr);
+        version++;
     }
 
     public void dropAttribute(String attrName) {
         attributes.removeIf(a ->
                 a.getName().equalsIgnoreCase(attrName)
         );
+        version++;
+    }
+
+    /**
+     * Gets the version of the attributes, it changes whenever an attribute is added or dropped so column positions
+     * found in an older version are known to be out of date
+     */
+    public int getVersion() {
+        return version;
     }
 
     /**
@@ -0,0 +1,150 @@
+package Catalog;
+
+import AttributeInfo.AttributeTypeEnum;
+import Common.Page;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Summary of the pages of a table, the smallest and largest value of each INTEGER and DOUBLE column of every page
+ * and the address of the page after it. A where clause that no value in those ranges can satisfy lets a scan pass
+ * over the page without reading it, the next address keeps the scan on the page chain.
+ * The range of a page may cover more than the page holds but never less: inserts widen it, deletes leave it as it
+ * was, and pages whose records are rearranged get their range again. Like the fence keys the zone maps are only
+ * kept in memory, the zone map of a page is made the first time a filtered scan reads the page after the table is
+ * created or the database starts.
+ * Sessions reading the same table can add zone maps at the same time, changes to the table run alone.
+ */
+public class ZoneMaps {
+    private final int version;
+    // the columns whose ranges are kept
+    private final boolean[] ranged;
+    private final Map<Integer, Zone> zones;
+
+    /**
+     * The zone map of one page
+     */
+    public static class Zone {
+        private final double[] min;
+        private final double[] max;
+        private int nextPage;
+
+        private Zone(int columns) {
+            this.min = new double[columns];
+            this.max = new double[columns];
+        }
+
+        /**
+         * @return the smallest value of a column, positive infinity if every field is null
+         */
+        public double getMin(int col) {
+            return min[col];
+        }
+
+        /**
+         * @return the largest value of a column, negative infinity if every field is null
+         */
+        public double getMax(int col) {
+            return max[col];
+        }
+
+        public int getNextPage() {
+            return nextPage;
+        }
+    }
+
+    /**
+     * @param table the table the pages belong to, its columns must not change while the zone maps are used
+     */
+    public ZoneMaps(TableSchema table) {
+        this.version = table.getVersion();
+        this.ranged = new boolean[table.getAttributes().size()];
+        for (int i = 0; i < ranged.length; i++) {
+            AttributeTypeEnum type = table.getAttributes().get(i).getDefinition().getType();
+            ranged[i] = type == AttributeTypeEnum.INTEGER || type == AttributeTypeEnum.DOUBLE;
+        }
+        this.zones = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return the version of the table schema the zone maps were made for
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @param address the address of a page
+     * @return the zone map of the page, or null if it has not been made
+     */
+    public Zone get(int address) {
+        return zones.get(address);
+    }
+
+    /**
+     * Makes the zone map of a page from its records, the page must not be changed while this runs
+     * @param page the page, with its records and next page up to date
+     */
+    public void setPage(Page page) {
+        Zone zone = new Zone(ranged.length);
+        for (int col = 0; col < ranged.length; col++) {
+            if (!ranged[col]) {
+                zone.min[col] = Double.NEGATIVE_INFINITY;
+                zone.max[col] = Double.POSITIVE_INFINITY;
+                continue;
+            }
+            zone.min[col] = Double.POSITIVE_INFINITY;
+            zone.max[col] = Double.NEGATIVE_INFINITY;
+            for (int row = 0; row < page.getNumRows(); row++) {
+                if (!page.isNull(row, col)) {
+                    widen(zone, col, ((Number) page.getValue(row, col)).doubleValue());
+                }
+            }
+        }
+        zone.nextPage = page.getNextPage();
+        zones.put(page.getPageAddress(), zone);
+    }
+
+    /**
+     * Widens the zone map of a page to take in a record added to it, nothing is done if the page has no zone map
+     * @param page the page, its next page is taken again as well
+     * @param record the record
+     */
+    public void addRecord(Page page, List<Object> record) {
+        Zone zone = zones.get(page.getPageAddress());
+        if (zone == null) {
+            return;
+        }
+        for (int col = 0; col < ranged.length; col++) {
+            if (ranged[col] && record.get(col) != null) {
+                widen(zone, col, ((Number) record.get(col)).doubleValue());
+            }
+        }
+        zone.nextPage = page.getNextPage();
+    }
+
+    private static void widen(Zone zone, int col, double value) {
+        if (Double.isNaN(value)) {
+            // NaN is outside every range, the column can not be used to pass over the page
+            zone.min[col] = Double.NEGATIVE_INFINITY;
+            zone.max[col] = Double.POSITIVE_INFINITY;
+            return;
+        }
+        if (value < zone.min[col]) {
+            zone.min[col] = value;
+        }
+        if (value > zone.max[col]) {
+            zone.max[col] = value;
+        }
+    }
+
+    /**
+     * Removes a page that is no longer part of the table
+     * @param address the address of the page
+     */
+    public void removePage(int address) {
+        zones.remove(address);
+    }
+}
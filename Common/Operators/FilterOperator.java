@@ -0,0 +1,51 @@
+package Common.Operators;
+
+import Catalog.TableSchema;
+import Common.Where.ICompiledWhere;
+import Common.Where.IWhereOp;
+
+import java.util.ArrayList;
+
+/**
+ * Returns the rows of its child that satisfy a where clause. The where clause is compiled against the child's
+ * schema when the operator is first opened
+ */
+public class FilterOperator implements Operator {
+    private final Operator child;
+    private final IWhereOp whereTree;
+    private ICompiledWhere condition;
+
+    public FilterOperator(Operator child, IWhereOp whereTree) {
+        this.child = child;
+        this.whereTree = whereTree;
+    }
+
+    @Override
+    public void open() throws Exception {
+        if (condition == null) {
+            condition = whereTree.compile(child.getSchema());
+        }
+        child.open();
+    }
+
+    @Override
+    public ArrayList<Object> next() throws Exception {
+        ArrayList<Object> row;
+        while ((row = child.next()) != null) {
+            if (condition.evaluate(row)) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws Exception {
+        child.close();
+    }
+
+    @Override
+    public TableSchema getSchema() {
+        return child.getSchema();
+    }
+}
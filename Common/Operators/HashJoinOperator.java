@@ -0,0 +1,209 @@
+package Common.Operators;
+
+import Catalog.TableSchema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Equi-join of two operators on one or more pairs of columns. The right side is loaded into a hash table and the
+ * left side is streamed past it, so rows come out in left row order and the matches of a left row in right row
+ * order.
+ * If the right side does not fit in the memory of the buffer both sides are split into partitions on the hash of
+ * their keys (grace hash join). The partitions are stored in temp tables and joined one pair at a time, so rows
+ * come out partition by partition and only keep that order within a partition.
+ */
+public class HashJoinOperator implements Operator {
+    private static final int PARTITIONS = 8;
+
+    private final Operator left;
+    private final Operator right;
+    private final int[] leftKeys;
+    private final int[] rightKeys;
+    private final TableSchema schema;
+
+    private HashMap<List<Object>, List<ArrayList<Object>>> table;
+    private Operator probe;
+    private ArrayList<Object> leftRow;
+    private List<ArrayList<Object>> matches;
+    private int matchIndex;
+
+    // only used once the join has spilled
+    private List<TempTable> leftPartitions;
+    private List<TempTable> rightPartitions;
+    private int partition;
+
+    /**
+     * @param left the outer side
+     * @param right the side that is put in the hash table
+     * @param leftKeys the key columns in the rows of left
+     * @param rightKeys the key columns in the rows of right, in the same order as leftKeys
+     */
+    public HashJoinOperator(Operator left, Operator right, int[] leftKeys, int[] rightKeys) {
+        this.left = left;
+        this.right = right;
+        this.leftKeys = leftKeys;
+        this.rightKeys = rightKeys;
+        this.schema = NestedLoopJoinOperator.joinSchema(left.getSchema(), right.getSchema());
+    }
+
+    private static List<Object> key(List<Object> row, int[] keys) {
+        List<Object> key = new ArrayList<>(keys.length);
+        for (int column : keys) {
+            Object value = row.get(column);
+            // null never equals anything
+            if (value == null) {
+                return null;
+            }
+            key.add(value);
+        }
+        return key;
+    }
+
+    private static int partitionOf(List<Object> key) {
+        return Math.floorMod(key.hashCode(), PARTITIONS);
+    }
+
+    @Override
+    public void open() throws Exception {
+        table = new HashMap<>();
+        matches = null;
+        long size = 0;
+        right.open();
+        ArrayList<Object> row;
+        while ((row = right.next()) != null) {
+            List<Object> key = key(row, rightKeys);
+            if (key == null) {
+                continue;
+            }
+            table.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+            size += MemoryBudget.estimateSize(row);
+            if (size > MemoryBudget.bytes(MemoryBudget.pages())) {
+                spill();
+                return;
+            }
+        }
+        right.close();
+        left.open();
+        probe = left;
+    }
+
+    /**
+     * Partitions the rest of the right side and all of the left side into temp tables
+     */
+    private void spill() throws Exception {
+        leftPartitions = new ArrayList<>();
+        rightPartitions = new ArrayList<>();
+        for (int i = 0; i < PARTITIONS; i++) {
+            leftPartitions.add(new TempTable("$hashjoin_left", left.getSchema().getAttributes()));
+            rightPartitions.add(new TempTable("$hashjoin_right", right.getSchema().getAttributes()));
+        }
+        for (List<ArrayList<Object>> rows : table.values()) {
+            for (ArrayList<Object> row : rows) {
+                rightPartitions.get(partitionOf(key(row, rightKeys))).add(row);
+            }
+        }
+        table.clear();
+        ArrayList<Object> row;
+        while ((row = right.next()) != null) {
+            List<Object> key = key(row, rightKeys);
+            if (key != null) {
+                rightPartitions.get(partitionOf(key)).add(row);
+            }
+        }
+        right.close();
+        left.open();
+        while ((row = left.next()) != null) {
+            List<Object> key = key(row, leftKeys);
+            if (key != null) {
+                leftPartitions.get(partitionOf(key)).add(row);
+            }
+        }
+        left.close();
+        partition = -1;
+        nextPartition();
+    }
+
+    /**
+     * Loads the next pair of partitions
+     * @return false if there are no partitions left
+     */
+    private boolean nextPartition() throws Exception {
+        if (probe != null && probe != left) {
+            probe.close();
+        }
+        partition++;
+        if (partition >= PARTITIONS) {
+            probe = null;
+            return false;
+        }
+        table.clear();
+        Operator build = rightPartitions.get(partition).scan();
+        build.open();
+        ArrayList<Object> row;
+        while ((row = build.next()) != null) {
+            table.computeIfAbsent(key(row, rightKeys), k -> new ArrayList<>()).add(row);
+        }
+        build.close();
+        probe = leftPartitions.get(partition).scan();
+        probe.open();
+        return true;
+    }
+
+    @Override
+    public ArrayList<Object> next() throws Exception {
+        while (true) {
+            if (matches != null && matchIndex < matches.size()) {
+                ArrayList<Object> rightRow = matches.get(matchIndex++);
+                ArrayList<Object> row = new ArrayList<>(leftRow.size() + rightRow.size());
+                row.addAll(leftRow);
+                row.addAll(rightRow);
+                return row;
+            }
+            if (probe == null) {
+                return null;
+            }
+            leftRow = probe.next();
+            if (leftRow == null) {
+                if (leftPartitions == null || !nextPartition()) {
+                    probe = null;
+                    return null;
+                }
+                matches = null;
+                continue;
+            }
+            List<Object> key = key(leftRow, leftKeys);
+            matches = key == null ? null : table.getOrDefault(key, Collections.emptyList());
+            matchIndex = 0;
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (probe == left) {
+            left.close();
+        } else if (probe != null) {
+            probe.close();
+        }
+        probe = null;
+        table = null;
+        matches = null;
+        if (leftPartitions != null) {
+            for (TempTable temp : leftPartitions) {
+                temp.drop();
+            }
+            for (TempTable temp : rightPartitions) {
+                temp.drop();
+            }
+            leftPartitions = null;
+            rightPartitions = null;
+        }
+    }
+
+    @Override
+    public TableSchema getSchema() {
+        return schema;
+    }
+}
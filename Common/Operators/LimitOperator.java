@@ -0,0 +1,47 @@
+package Common.Operators;
+
+import Catalog.TableSchema;
+
+import java.util.ArrayList;
+
+/**
+ * Returns at most a fixed number of rows of its child, the child is not read past that
+ */
+public class LimitOperator implements Operator {
+    private final Operator child;
+    private final int limit;
+    private int returned;
+
+    public LimitOperator(Operator child, int limit) {
+        this.child = child;
+        this.limit = limit;
+    }
+
+    @Override
+    public void open() throws Exception {
+        child.open();
+        returned = 0;
+    }
+
+    @Override
+    public ArrayList<Object> next() throws Exception {
+        if (returned >= limit) {
+            return null;
+        }
+        ArrayList<Object> row = child.next();
+        if (row != null) {
+            returned++;
+        }
+        return row;
+    }
+
+    @Override
+    public void close() throws Exception {
+        child.close();
+    }
+
+    @Override
+    public TableSchema getSchema() {
+        return child.getSchema();
+    }
+}
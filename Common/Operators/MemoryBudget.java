@@ -0,0 +1,47 @@
+package Common.Operators;
+
+import Catalog.Catalog;
+import StorageManager.BufferManager;
+
+import java.util.List;
+
+/**
+ * How much memory operators that hold rows may use. Operators get the memory of the buffer, measured in pages,
+ * and estimate how many bytes the rows they hold take up.
+ */
+final class MemoryBudget {
+    private MemoryBudget() {
+    }
+
+    /**
+     * Estimates how many bytes a row takes up in memory
+     */
+    static long estimateSize(List<Object> row) {
+        long size = 16;
+        for (Object value : row) {
+            if (value instanceof String) {
+                size += 8 + ((String) value).length();
+            } else if (value instanceof Double) {
+                size += Double.BYTES;
+            } else {
+                size += Integer.BYTES;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of pages the buffer holds
+     */
+    static int pages() {
+        return BufferManager.getInstance().getBufferSize();
+    }
+
+    /**
+     * @param pages a number of pages
+     * @return the number of bytes in that many pages
+     */
+    static long bytes(int pages) {
+        return (long) pages * Catalog.getInstance().getPageSize();
+    }
+}
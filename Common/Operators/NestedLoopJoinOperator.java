@@ -0,0 +1,185 @@
+package Common.Operators;
+
+import AttributeInfo.Attribute;
+import Catalog.TableSchema;
+import Common.Page;
+import StorageManager.StorageManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Cartesian product of two operators using a block nested loop. The left side is read a block at a time, all but
+ * one page of the buffer, and the right side is scanned once per block instead of once per left row. Within a
+ * block each right row is paired with every left row of the block.
+ * When the left side is a scan of a table the block is its pages, pinned in the buffer until the block is done, and
+ * left rows are read from the pages. Otherwise left rows are copied into a block of the same size in memory.
+ * Attributes are renamed to tablename.attribute unless they are already qualified.
+ */
+public class NestedLoopJoinOperator implements Operator {
+    private final Operator left;
+    private final Operator right;
+    private final TableSchema schema;
+    // the left side when its pages can make up the block, else null
+    private final ScanOperator leftScan;
+    private final List<ArrayList<Object>> block;
+    private final List<Page> pinned;
+    private boolean leftDone;
+    private ArrayList<Object> rightRow;
+    // the next left row of the block to pair with the right row, the page and row within it for a pinned block
+    private int blockIndex;
+    private int blockRow;
+
+    public NestedLoopJoinOperator(Operator left, Operator right) {
+        this.left = left;
+        this.right = right;
+        this.schema = joinSchema(left.getSchema(), right.getSchema());
+        this.leftScan = left instanceof ScanOperator && ((ScanOperator) left).returnsPages()
+                ? (ScanOperator) left : null;
+        this.block = new ArrayList<>();
+        this.pinned = new ArrayList<>();
+    }
+
+    /**
+     * Builds the schema of the rows of a join, the left attributes followed by the right ones
+     */
+    public static TableSchema joinSchema(TableSchema left, TableSchema right) {
+        List<Attribute> attributes = new ArrayList<>();
+        addQualified(attributes, left);
+        addQualified(attributes, right);
+        return new TableSchema("$join", attributes);
+    }
+
+    private static void addQualified(List<Attribute> attributes, TableSchema table) {
+        for (Attribute attr : table.getAttributes()) {
+            attributes.add(Attribute.rename(attr, !attr.getName().contains(".")
+                    ? table.getTableName() + "." + attr.getName() : attr.getName()));
+        }
+    }
+
+    /**
+     * Reads the next block of the left side, one page of the buffer is left for the right side
+     * @return false if there are no left rows left
+     */
+    private boolean nextBlock() throws Exception {
+        releaseBlock();
+        if (leftScan != null) {
+            int limit = Math.max(1, MemoryBudget.pages() - 1);
+            while (!leftDone && pinned.size() < limit) {
+                Page page = leftScan.nextPage();
+                if (page == null) {
+                    leftDone = true;
+                } else {
+                    pinned.add(page);
+                }
+            }
+        } else {
+            long limit = MemoryBudget.bytes(Math.max(1, MemoryBudget.pages() - 1));
+            long size = 0;
+            while (!leftDone && size < limit) {
+                ArrayList<Object> row = left.next();
+                if (row == null) {
+                    leftDone = true;
+                } else {
+                    block.add(row);
+                    size += MemoryBudget.estimateSize(row);
+                }
+            }
+        }
+        if (!hasBlock()) {
+            return false;
+        }
+        right.open();
+        rightRow = null;
+        return true;
+    }
+
+    private boolean hasBlock() {
+        return !block.isEmpty() || !pinned.isEmpty();
+    }
+
+    /**
+     * Lets go of the current block, its pages are unpinned
+     */
+    private void releaseBlock() {
+        block.clear();
+        StorageManager storageManager = StorageManager.getStorageManager();
+        for (Page page : pinned) {
+            storageManager.unpin(page);
+        }
+        pinned.clear();
+    }
+
+    /**
+     * Gets the next left row of the block to pair with the current right row
+     * @return the row, or null once every row of the block has been paired with it
+     */
+    private ArrayList<Object> nextLeftRow() {
+        if (leftScan == null) {
+            return blockIndex < block.size() ? block.get(blockIndex++) : null;
+        }
+        while (blockIndex < pinned.size()) {
+            Page page = pinned.get(blockIndex);
+            Lock latch = page.getLatch().readLock();
+            latch.lock();
+            try {
+                if (blockRow < page.getNumRows()) {
+                    return page.getRecord(blockRow++);
+                }
+            } finally {
+                latch.unlock();
+            }
+            blockIndex++;
+            blockRow = 0;
+        }
+        return null;
+    }
+
+    @Override
+    public void open() throws Exception {
+        left.open();
+        leftDone = false;
+        if (!nextBlock()) {
+            left.close();
+        }
+    }
+
+    @Override
+    public ArrayList<Object> next() throws Exception {
+        while (hasBlock()) {
+            ArrayList<Object> leftRow = rightRow == null ? null : nextLeftRow();
+            if (leftRow != null) {
+                ArrayList<Object> row = new ArrayList<>(leftRow.size() + rightRow.size());
+                row.addAll(leftRow);
+                row.addAll(rightRow);
+                return row;
+            }
+            rightRow = right.next();
+            blockIndex = 0;
+            blockRow = 0;
+            if (rightRow == null) {
+                right.close();
+                if (!nextBlock()) {
+                    left.close();
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (hasBlock()) {
+            right.close();
+            left.close();
+            releaseBlock();
+        }
+        rightRow = null;
+    }
+
+    @Override
+    public TableSchema getSchema() {
+        return schema;
+    }
+}
@@ -0,0 +1,35 @@
+package Common.Operators;
+
+import Catalog.TableSchema;
+
+import java.util.ArrayList;
+
+/**
+ * A node of a pull based (Volcano) query plan. The parent calls open, then next until it returns null, then close.
+ * Rows move up the plan one at a time so no stage has to be written to a temporary table.
+ * An operator can be opened again after it is closed, which starts it over from the first row.
+ */
+public interface Operator {
+
+    /**
+     * Prepares the operator to return rows
+     */
+    void open() throws Exception;
+
+    /**
+     * Gets the next row
+     * @return the row, or null when there are no more rows. The row must not be changed by the caller
+     */
+    ArrayList<Object> next() throws Exception;
+
+    /**
+     * Releases anything held by the operator
+     */
+    void close() throws Exception;
+
+    /**
+     * Gets the schema of the rows returned by this operator. The schema is only used to name and type the
+     * columns, it is not in the catalog
+     */
+    TableSchema getSchema();
+}
@@ -0,0 +1,58 @@
+package Common.Operators;
+
+import AttributeInfo.Attribute;
+import Catalog.TableSchema;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps only some of the columns of its child, in the given order
+ */
+public class ProjectOperator implements Operator {
+    private final Operator child;
+    private final List<Integer> columns;
+    private final TableSchema schema;
+
+    /**
+     * @param child the operator to read rows from
+     * @param columns the indexes of the columns to keep
+     */
+    public ProjectOperator(Operator child, List<Integer> columns) {
+        this.child = child;
+        this.columns = columns;
+        List<Attribute> attributes = new ArrayList<>();
+        for (int column : columns) {
+            attributes.add(child.getSchema().getAttributes().get(column));
+        }
+        this.schema = new TableSchema(child.getSchema().getTableName(), attributes);
+    }
+
+    @Override
+    public void open() throws Exception {
+        child.open();
+    }
+
+    @Override
+    public ArrayList<Object> next() throws Exception {
+        ArrayList<Object> row = child.next();
+        if (row == null) {
+            return null;
+        }
+        ArrayList<Object> projected = new ArrayList<>(columns.size());
+        for (int column : columns) {
+            projected.add(row.get(column));
+        }
+        return projected;
+    }
+
+    @Override
+    public void close() throws Exception {
+        child.close();
+    }
+
+    @Override
+    public TableSchema getSchema() {
+        return schema;
+    }
+}
@@ -0,0 +1,214 @@
+package Common.Operators;
+
+import AttributeInfo.Attribute;
+import Catalog.Catalog;
+import Catalog.TableSchema;
+import Catalog.ZoneMaps;
+import Common.Page;
+import Common.PageBatch;
+import Common.Where.ICompiledWhere;
+import Common.Where.IWhereOp;
+import StorageManager.StorageManager;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Returns every row of a table by following its page chain. Pages are read through the buffer one at a time, the
+ * page being read is pinned and rows are taken from it under its read latch. A scan can filter its rows with a
+ * where clause, the where clause is evaluated over each page as a batch and only the rows that match are decoded. A scan can also
+ * return only some of the columns, the other fields of a row are not decoded.
+ * A filtered scan of a whole table passes over the pages whose zone maps show none of their rows can match, and
+ * makes the zone map of every page it reads that does not have one yet.
+ */
+public class ScanOperator implements Operator {
+    private final String tableName;
+    private final TableSchema schema;
+    // when set only the page the primary key index points to is read
+    private final Object primaryKey;
+    private final IWhereOp whereTree;
+    // the columns returned, null for every column
+    private final int[] columns;
+    private final TableSchema projectedSchema;
+    private ICompiledWhere condition;
+    // null unless the scan filters a whole table
+    private ZoneMaps zones;
+    // the rows of the current page that match the where clause, null until the page is evaluated
+    private BitSet selected;
+    private Page page;
+    private int row;
+
+    public ScanOperator(String tableName) {
+        this(tableName, null);
+    }
+
+    /**
+     * Creates a scan that only reads the page holding a primary key, the table must be indexed
+     * @param tableName the table to scan
+     * @param primaryKey the primary key value, or null to scan the whole table
+     */
+    public ScanOperator(String tableName, Object primaryKey) {
+        this(tableName, primaryKey, null, null);
+    }
+
+    private ScanOperator(String tableName, Object primaryKey, IWhereOp whereTree, List<Integer> columns) {
+        this.tableName = tableName;
+        this.schema = Catalog.getInstance().getTable(tableName);
+        this.primaryKey = primaryKey;
+        this.whereTree = whereTree;
+        if (columns == null) {
+            this.columns = null;
+            this.projectedSchema = schema;
+        } else {
+            this.columns = new int[columns.size()];
+            List<Attribute> attributes = new ArrayList<>();
+            for (int i = 0; i < columns.size(); i++) {
+                this.columns[i] = columns.get(i);
+                attributes.add(schema.getAttributes().get(columns.get(i)));
+            }
+            this.projectedSchema = new TableSchema(tableName, attributes);
+        }
+    }
+
+    /**
+     * Creates the same scan returning only the rows that satisfy a where clause
+     * @param whereTree the where clause, built against the schema of the table
+     */
+    public ScanOperator filter(IWhereOp whereTree) {
+        return new ScanOperator(tableName, primaryKey, whereTree, columns == null ? null : toList(columns));
+    }
+
+    /**
+     * Creates the same scan returning only some of the columns, in the given order. The where clause of the scan
+     * can still use any column
+     * @param columns the indexes of the columns to keep
+     */
+    public ScanOperator project(List<Integer> columns) {
+        return new ScanOperator(tableName, primaryKey, whereTree, columns);
+    }
+
+    private static List<Integer> toList(int[] columns) {
+        List<Integer> list = new ArrayList<>(columns.length);
+        for (int column : columns) {
+            list.add(column);
+        }
+        return list;
+    }
+
+    @Override
+    public void open() throws Exception {
+        close();
+        if (whereTree != null && condition == null) {
+            condition = whereTree.compile(schema);
+        }
+        StorageManager storageManager = StorageManager.getStorageManager();
+        if (primaryKey != null) {
+            page = storageManager.pinByPrimaryKey(tableName, primaryKey);
+        } else if (condition != null) {
+            zones = storageManager.getZoneMaps(tableName);
+            int address = skipPages(Catalog.getInstance().getAddressOfPage(tableName));
+            page = address == -1 ? null : storageManager.pin(address, tableName);
+        } else {
+            page = storageManager.pinFirstPage(tableName);
+        }
+        row = 0;
+        selected = null;
+    }
+
+    @Override
+    public ArrayList<Object> next() throws Exception {
+        while (page != null) {
+            int nextPage;
+            Lock latch = page.getLatch().readLock();
+            latch.lock();
+            try {
+                if (condition != null && selected == null) {
+                    selected = new BitSet(page.getNumRows());
+                    condition.evaluate(new PageBatch(page, schema.getAttributes().size()), selected);
+                    if (zones != null && zones.get(page.getPageAddress()) == null) {
+                        zones.setPage(page);
+                    }
+                }
+                int next = selected == null ? row : selected.nextSetBit(row);
+                if (next != -1 && next < page.getNumRows()) {
+                    row = next + 1;
+                    return columns == null ? page.getRecord(next) : page.getRecord(next, columns);
+                }
+                nextPage = primaryKey == null ? skipPages(page.getNextPage()) : -1;
+            } finally {
+                latch.unlock();
+            }
+            // the next page is pinned before this one is let go
+            StorageManager storageManager = StorageManager.getStorageManager();
+            Page current = page;
+            page = nextPage != -1 ? storageManager.pin(nextPage, tableName) : null;
+            storageManager.unpin(current);
+            row = 0;
+            selected = null;
+        }
+        return null;
+    }
+
+    /**
+     * @return true if nextPage can be used, the scan neither filters its rows nor leaves out columns
+     */
+    public boolean returnsPages() {
+        return whereTree == null && columns == null;
+    }
+
+    /**
+     * Hands out the next page of the scan instead of its rows, the page stays pinned until the caller unpins it.
+     * Can only be used when returnsPages is true, and not after next has returned rows of the current page
+     * @return the pinned page, or null when every page has been handed out
+     */
+    public Page nextPage() throws Exception {
+        Page current = page;
+        if (current == null) {
+            return null;
+        }
+        int nextPage;
+        Lock latch = current.getLatch().readLock();
+        latch.lock();
+        try {
+            nextPage = primaryKey == null ? current.getNextPage() : -1;
+        } finally {
+            latch.unlock();
+        }
+        // the next page is pinned before this one is handed out, like next does
+        page = nextPage != -1 ? StorageManager.getStorageManager().pin(nextPage, tableName) : null;
+        row = 0;
+        selected = null;
+        return current;
+    }
+
+    /**
+     * Follows the page chain past the pages whose zone maps show the where clause matches none of their rows
+     * @param address the address of the next page of the chain
+     * @return the address of the first page that has to be read, or -1 if there is none
+     */
+    private int skipPages(int address) {
+        while (zones != null && address != -1) {
+            ZoneMaps.Zone zone = zones.get(address);
+            if (zone == null || condition.mayMatch(zone)) {
+                break;
+            }
+            address = zone.getNextPage();
+        }
+        return address;
+    }
+
+    @Override
+    public void close() {
+        if (page != null) {
+            StorageManager.getStorageManager().unpin(page);
+            page = null;
+        }
+    }
+
+    @Override
+    public TableSchema getSchema() {
+        return projectedSchema;
+    }
+}
@@ -0,0 +1,203 @@
+package Common.Operators;
+
+import Catalog.TableSchema;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts the rows of its child on one column, nulls first. Sorting needs every row so the child is read completely
+ * when the operator is opened.
+ * Rows that fit in the buffer's memory are sorted in memory and kept so opening it again does not sort again.
+ * Otherwise it is an external merge sort: sorted runs that fit in memory are written to temp tables and merged
+ * with a heap, at most one run per page of the buffer at a time, while the rows are returned. The runs are dropped
+ * when the operator is closed. Rows with equal values keep the order of the child.
+ */
+public class SortOperator implements Operator {
+    private final Operator child;
+    private final int column;
+    private final Comparator<List<Object>> comparator;
+    private List<ArrayList<Object>> sorted;
+    private Iterator<ArrayList<Object>> iterator;
+
+    // only used when the rows did not fit in memory
+    private List<TempTable> runs;
+    private PriorityQueue<Run> merge;
+
+    /**
+     * The position of a merge in one run
+     */
+    private static class Run {
+        private final int number;
+        private final Operator scan;
+        private ArrayList<Object> row;
+
+        private Run(int number, Operator scan) {
+            this.number = number;
+            this.scan = scan;
+        }
+    }
+
+    /**
+     * @param child the operator to sort
+     * @param column the index of the column to sort on
+     */
+    public SortOperator(Operator child, int column) {
+        this.child = child;
+        this.column = column;
+        this.comparator = comparator(column);
+    }
+
+    /**
+     * Compares rows on a column with nulls first
+     */
+    @SuppressWarnings("unchecked")
+    public static Comparator<List<Object>> comparator(int column) {
+        return (row1, row2) -> {
+            Object val1 = row1.get(column);
+            Object val2 = row2.get(column);
+            if (val1 == null && val2 == null) return 0;
+            if (val1 == null) return -1; // Nulls come first
+            if (val2 == null) return 1;
+            return ((Comparable<Object>) val1).compareTo(val2);
+        };
+    }
+
+    @Override
+    public void open() throws Exception {
+        if (sorted != null) {
+            iterator = sorted.iterator();
+            return;
+        }
+        long limit = MemoryBudget.bytes(MemoryBudget.pages());
+        List<ArrayList<Object>> rows = new ArrayList<>();
+        long size = 0;
+        runs = new ArrayList<>();
+        child.open();
+        ArrayList<Object> row;
+        while ((row = child.next()) != null) {
+            rows.add(row);
+            size += MemoryBudget.estimateSize(row);
+            if (size > limit) {
+                writeRun(rows);
+                size = 0;
+            }
+        }
+        child.close();
+        if (runs.isEmpty()) {
+            runs = null;
+            rows.sort(comparator);
+            sorted = rows;
+            iterator = sorted.iterator();
+            return;
+        }
+        if (!rows.isEmpty()) {
+            writeRun(rows);
+        }
+
+        // merge the first runs together until they can all be merged at once
+        int fanIn = Math.max(2, MemoryBudget.pages() - 1);
+        while (runs.size() > fanIn) {
+            List<TempTable> group = new ArrayList<>(runs.subList(0, fanIn));
+            TempTable merged = new TempTable("$sort", getSchema().getAttributes());
+            PriorityQueue<Run> groupMerge = openMerge(group);
+            while ((row = nextMerged(groupMerge)) != null) {
+                merged.add(row);
+            }
+            merged.flush();
+            for (TempTable run : group) {
+                run.drop();
+            }
+            runs.subList(0, fanIn).clear();
+            runs.add(0, merged);
+        }
+        merge = openMerge(runs);
+    }
+
+    /**
+     * Sorts rows and writes them to a new run
+     */
+    private void writeRun(List<ArrayList<Object>> rows) throws Exception {
+        rows.sort(comparator);
+        TempTable run = new TempTable("$sort", getSchema().getAttributes());
+        for (ArrayList<Object> row : rows) {
+            run.add(row);
+        }
+        run.flush();
+        runs.add(run);
+        rows.clear();
+    }
+
+    /**
+     * Starts a merge of runs, ties go to the earlier run so the sort stays stable
+     */
+    private PriorityQueue<Run> openMerge(List<TempTable> toMerge) throws Exception {
+        PriorityQueue<Run> heap = new PriorityQueue<>(Math.max(1, toMerge.size()), (run1, run2) -> {
+            int compare = comparator.compare(run1.row, run2.row);
+            return compare != 0 ? compare : Integer.compare(run1.number, run2.number);
+        });
+        for (int i = 0; i < toMerge.size(); i++) {
+            Run run = new Run(i, toMerge.get(i).scan());
+            run.scan.open();
+            run.row = run.scan.next();
+            if (run.row != null) {
+                heap.add(run);
+            } else {
+                run.scan.close();
+            }
+        }
+        return heap;
+    }
+
+    /**
+     * Takes the smallest row out of a merge
+     * @return the row or null if every run is used up
+     */
+    private static ArrayList<Object> nextMerged(PriorityQueue<Run> heap) throws Exception {
+        Run run = heap.poll();
+        if (run == null) {
+            return null;
+        }
+        ArrayList<Object> row = run.row;
+        run.row = run.scan.next();
+        if (run.row != null) {
+            heap.add(run);
+        } else {
+            run.scan.close();
+        }
+        return row;
+    }
+
+    @Override
+    public ArrayList<Object> next() throws Exception {
+        if (merge != null) {
+            return nextMerged(merge);
+        }
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    @Override
+    public void close() throws Exception {
+        iterator = null;
+        if (merge != null) {
+            for (Run run : merge) {
+                run.scan.close();
+            }
+            merge = null;
+        }
+        if (runs != null) {
+            for (TempTable run : runs) {
+                run.drop();
+            }
+            runs = null;
+        }
+    }
+
+    @Override
+    public TableSchema getSchema() {
+        return child.getSchema();
+    }
+}
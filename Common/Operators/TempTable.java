@@ -0,0 +1,213 @@
+package Common.Operators;
+
+import AttributeInfo.Attribute;
+import Catalog.TableSchema;
+import StorageManager.StorageManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A temporary relation used by operators that run out of memory. Temp relations belong to the query that creates
+ * them, they are not in the catalog and never go through the buffer, so they cannot collide with the temp
+ * relations of other sessions or evict pages of the tables being queried.
+ * Rows are kept in memory while the rows of all temp relations fit in the temp budget, which is as large as the
+ * buffer. A relation that is added to past the budget moves its rows to its own scratch file in the database
+ * directory, and the file is deleted when the relation is dropped.
+ */
+public class TempTable {
+    private static final byte NULL = 0;
+    private static final byte INTEGER = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte BOOLEAN = 3;
+    private static final byte STRING = 4;
+
+    // bytes of rows held in memory by every temp relation
+    private static final AtomicLong memoryUsed = new AtomicLong();
+
+    private final TableSchema schema;
+    // rows added since the last spill, they come after the rows in the scratch file
+    private final List<List<Object>> rows;
+    private long memory;
+    private File scratch;
+    private DataOutputStream out;
+    private int spilledRows;
+    private int numRows;
+
+    /**
+     * Creates the relation
+     * @param prefix start of the relation name, used to name its scratch file
+     * @param attributes the attributes of the rows that will be stored
+     */
+    public TempTable(String prefix, List<Attribute> attributes) {
+        String name = prefix + "_" + UUID.randomUUID().toString().replace("-", "");
+        this.schema = new TableSchema(name, new ArrayList<>(attributes));
+        this.rows = new ArrayList<>();
+    }
+
+    public String getTableName() {
+        return schema.getTableName();
+    }
+
+    public int getNumRows() {
+        return numRows;
+    }
+
+    public void add(List<Object> row) throws Exception {
+        rows.add(row);
+        numRows++;
+        long size = MemoryBudget.estimateSize(row);
+        memory += size;
+        if (memoryUsed.addAndGet(size) > MemoryBudget.bytes(MemoryBudget.pages())) {
+            spill();
+        }
+    }
+
+    /**
+     * Writes the rows that are still buffered for the scratch file, must be called before the table is scanned
+     */
+    public void flush() throws Exception {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Creates a scan over the rows, in the order they were added
+     */
+    public Operator scan() throws Exception {
+        flush();
+        return new TempScan();
+    }
+
+    public void drop() throws Exception {
+        release();
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+        if (scratch != null) {
+            scratch.delete();
+            scratch = null;
+        }
+    }
+
+    /**
+     * Moves the rows held in memory to the end of the scratch file
+     */
+    private void spill() throws IOException {
+        if (out == null) {
+            scratch = File.createTempFile(schema.getTableName(), ".scratch",
+                    new File(StorageManager.getStorageManager().getDbPath()));
+            scratch.deleteOnExit();
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(scratch)));
+        }
+        for (List<Object> row : rows) {
+            for (Object value : row) {
+                writeValue(value);
+            }
+        }
+        spilledRows += rows.size();
+        release();
+    }
+
+    private void release() {
+        rows.clear();
+        memoryUsed.addAndGet(-memory);
+        memory = 0;
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else {
+            out.writeByte(STRING);
+            out.writeUTF(value.toString());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case INTEGER:
+                return in.readInt();
+            case DOUBLE:
+                return in.readDouble();
+            case BOOLEAN:
+                return in.readBoolean();
+            case STRING:
+                return in.readUTF();
+            default:
+                throw new IOException("Unknown value type " + type + " in a scratch file");
+        }
+    }
+
+    /**
+     * Reads the rows in the scratch file, then the rows still in memory
+     */
+    private class TempScan implements Operator {
+        private DataInputStream in;
+        private int row;
+
+        @Override
+        public void open() throws Exception {
+            close();
+            if (spilledRows > 0) {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(scratch)));
+            }
+            row = 0;
+        }
+
+        @Override
+        public ArrayList<Object> next() throws Exception {
+            if (row < spilledRows) {
+                int columns = schema.getAttributes().size();
+                ArrayList<Object> values = new ArrayList<>(columns);
+                for (int i = 0; i < columns; i++) {
+                    values.add(readValue(in));
+                }
+                row++;
+                return values;
+            }
+            if (row - spilledRows < rows.size()) {
+                List<Object> values = rows.get(row++ - spilledRows);
+                return values instanceof ArrayList ? (ArrayList<Object>) values : new ArrayList<>(values);
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws Exception {
+            if (in != null) {
+                in.close();
+                in = null;
+            }
+        }
+
+        @Override
+        public TableSchema getSchema() {
+            return schema;
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package Common;
 
 import AttributeInfo.Attribute;
+import AttributeInfo.AttributeTypeEnum;
 import Catalog.TableSchema;
 import Catalog.Catalog;
 
-import java.time.Instant;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static AttributeInfo.AttributeTypeEnum.VARCHAR;
 
@@ -17,10 +21,27 @@ public class Page {
     private int freeSpaceEnd;
     //actual data in each record in arraylist of arraylists
     private ArrayList<ArrayList<Object>> records;
-    private Instant lastUsed;
     private boolean modified;
+    // whether the current contents are in the write ahead log
+    private boolean logged;
     private String tableName;
     private boolean hasSplit;
+    // Raw bytes of a page read from disk. Records are only decoded from it when they are used, a record that has
+    // not been decoded yet is null in records. null for pages that were built in memory or have been changed
+    private ByteBuffer data;
+    // column types and sizes of the table when the page was read
+    private AttributeTypeEnum[] types;
+    private int[] byteSizes;
+    // offset of each record in data, null for a columnar page
+    private int[] recordOffsets;
+    // a columnar page stores the null bit arrays of its records, then each column's non null fields one after the
+    // other. The offsets of a column's fields are found the first time the column is read, -1 for a null field
+    private boolean columnar;
+    private int[][] columnOffsets;
+    // number of users holding the page through BufferManager.pin, a pinned page is never evicted
+    private final AtomicInteger pinCount = new AtomicInteger();
+    // held for reading while records are read and for writing while the page is changed
+    private final ReentrantReadWriteLock latch = new ReentrantReadWriteLock();
 
     public Page(int numRows, int address, int nextPage, int freeSpaceStart, int freeSpaceEnd, boolean modified, String tableName) {
         this.numRows = numRows;
@@ -32,10 +53,55 @@ public class Page {
         records = new ArrayList<ArrayList<Object>>();
         this.modified = modified;
         this.tableName = tableName;
-        lastUsed = Instant.now();
         hasSplit = false;
     }
 
+    /**
+     * Creates a page from the bytes written by BufferManager.writePage without decoding any records
+     * @param address the address of the page
+     * @param data the page, from its first byte to its last
+     * @param tableName the table the page belongs to
+     * @param attributes the attributes of the table
+     */
+    public Page(int address, ByteBuffer data, String tableName, List<Attribute> attributes) {
+        this(address, data, tableName, attributes, false);
+    }
+
+    /**
+     * Creates a page from the bytes written by BufferManager.writePage without decoding any records
+     * @param address the address of the page
+     * @param data the page, from its first byte to its last
+     * @param tableName the table the page belongs to
+     * @param attributes the attributes of the table
+     * @param columnar whether the page was written in the columnar layout
+     */
+    public Page(int address, ByteBuffer data, String tableName, List<Attribute> attributes, boolean columnar) {
+        // header is numRows, freeSpaceStart, freeSpaceEnd, nextPage
+        this(data.getInt(0), address, data.getInt(Integer.BYTES * 3), data.getInt(Integer.BYTES),
+                data.getInt(Integer.BYTES * 2), false, tableName);
+        this.data = data;
+        this.types = new AttributeTypeEnum[attributes.size()];
+        this.byteSizes = new int[attributes.size()];
+        for (int i = 0; i < attributes.size(); i++) {
+            types[i] = attributes.get(i).getDefinition().getType();
+            byteSizes[i] = attributes.get(i).getDefinition().getByteSize();
+        }
+        this.columnar = columnar;
+        if (columnar) {
+            this.columnOffsets = new int[attributes.size()][];
+            for (int i = 0; i < numRows; i++) {
+                records.add(null);
+            }
+            return;
+        }
+        // the record directory follows the header, an (offset, length) pair per record
+        this.recordOffsets = new int[numRows];
+        for (int i = 0; i < numRows; i++) {
+            recordOffsets[i] = data.getInt(Integer.BYTES * 4 + i * Integer.BYTES * 2) - address;
+            records.add(null);
+        }
+    }
+
     public int getNextPage(){
         return this.nextPage;
     }
@@ -53,18 +119,345 @@ public class Page {
     }
 
     public int getPageAddress(){ return address;}
-    public void SetModified(boolean modified){ this.modified = modified;}
+    public void SetModified(boolean modified){
+        this.modified = modified;
+        if (modified) {
+            this.logged = false;
+        }
+    }
     public boolean getModified(){ return this.modified;}
+    public boolean isLogged(){ return this.logged;}
+    public void setLogged(boolean logged){ this.logged = logged;}
     public String getTableName(){ return this.tableName;}
     public void setTableName(String tableName) {this.tableName = tableName;}
 
-    public ArrayList<Object> getRecord(int index){ return this.records.get(index);}
-    public Instant getLastUsed(){
-        return lastUsed;
+    public void pin() {
+        pinCount.incrementAndGet();
+    }
+
+    public void unpin() {
+        pinCount.decrementAndGet();
+    }
+
+    public boolean isPinned() {
+        return pinCount.get() > 0;
+    }
+
+    public ReentrantReadWriteLock getLatch() {
+        return latch;
+    }
+
+    /**
+     * Gets a record as a list of objects, decoding it if it is still in the raw page
+     * @param index the row of the record
+     * @return the record, changes to the list are kept in the page
+     */
+    public ArrayList<Object> getRecord(int index){
+        ArrayList<Object> record = this.records.get(index);
+        if (record == null) {
+            // readers holding the read latch can decode the same record at the same time
+            synchronized (this) {
+                record = this.records.get(index);
+                if (record == null) {
+                    record = decodeRecord(index);
+                    this.records.set(index, record);
+                }
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Decodes every record and drops the raw page, needed before the records are rearranged
+     */
+    private void decodeAll() {
+        if (data == null) {
+            return;
+        }
+        for (int i = 0; i < records.size(); i++) {
+            getRecord(i);
+        }
+        data = null;
+        types = null;
+        byteSizes = null;
+        recordOffsets = null;
+        columnOffsets = null;
+    }
+
+    private ArrayList<Object> decodeRecord(int row) {
+        ArrayList<Object> record = new ArrayList<Object>(types.length);
+        for (int col = 0; col < types.length; col++) {
+            record.add(decodeField(row, col));
+        }
+        return record;
+    }
+
+    /**
+     * Finds where a field starts in the raw page
+     * @return the offset of the field in data, or -1 if the field is null
+     */
+    private int fieldOffset(int row, int col) {
+        if (columnar) {
+            int[] offsets = columnOffsets[col];
+            return (offsets == null ? readColumnOffsets(col) : offsets)[row];
+        }
+        int position = recordOffsets[row];
+        int nullBitArray = data.getInt(position);
+        if ((nullBitArray & (1 << col)) != 0) {
+            return -1;
+        }
+        position += Integer.BYTES;
+        for (int j = 0; j < col; j++) {
+            if ((nullBitArray & (1 << j)) == 0) {
+                // VARCHARs are stored as a pointer and a length, the data is at the end of the page
+                position += types[j] == VARCHAR ? Integer.BYTES * 2 : byteSizes[j];
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Finds where the fields of a column are in a columnar page. The column starts after the non null fields of the
+     * columns before it, which are counted from the null bit arrays
+     */
+    private synchronized int[] readColumnOffsets(int col) {
+        if (columnOffsets[col] != null) {
+            return columnOffsets[col];
+        }
+        int nullBitArrays = Integer.BYTES * 4;
+        int position = nullBitArrays + numRows * Integer.BYTES;
+        for (int row = 0; row < numRows; row++) {
+            int nullBitArray = data.getInt(nullBitArrays + row * Integer.BYTES);
+            for (int j = 0; j < col; j++) {
+                if ((nullBitArray & (1 << j)) == 0) {
+                    position += columnWidth(j);
+                }
+            }
+        }
+        int[] offsets = new int[numRows];
+        for (int row = 0; row < numRows; row++) {
+            if ((data.getInt(nullBitArrays + row * Integer.BYTES) & (1 << col)) != 0) {
+                offsets[row] = -1;
+            } else {
+                offsets[row] = position;
+                position += columnWidth(col);
+            }
+        }
+        columnOffsets[col] = offsets;
+        return offsets;
+    }
+
+    /**
+     * @return the bytes a field of a column takes up in the fixed part of a record
+     */
+    private int columnWidth(int col) {
+        // VARCHARs are stored as a pointer and a length, the data is at the end of the page
+        return types[col] == VARCHAR ? Integer.BYTES * 2 : byteSizes[col];
+    }
+
+    /**
+     * Gets some of the fields of a record without decoding the others. Fixed width fields that are not asked for
+     * are stepped over and the characters of VARCHARs that are not asked for are never read. The record is not
+     * kept in the page
+     * @param index the row of the record
+     * @param columns the indexes of the attributes to get, in the order they are returned
+     * @return a new list with the fields
+     */
+    public ArrayList<Object> getRecord(int index, int[] columns) {
+        ArrayList<Object> fields = new ArrayList<Object>(columns.length);
+        if (!isRaw(index)) {
+            ArrayList<Object> record = records.get(index);
+            for (int col : columns) {
+                fields.add(record.get(col));
+            }
+            return fields;
+        }
+        if (columnar) {
+            for (int col : columns) {
+                fields.add(decodeField(index, col));
+            }
+            return fields;
+        }
+        // the offsets of every field up to the last one asked for, found in one pass over the null bit array
+        int last = 0;
+        for (int col : columns) {
+            last = Math.max(last, col);
+        }
+        int[] offsets = new int[last + 1];
+        int position = recordOffsets[index];
+        int nullBitArray = data.getInt(position);
+        position += Integer.BYTES;
+        for (int col = 0; col <= last; col++) {
+            if ((nullBitArray & (1 << col)) != 0) {
+                offsets[col] = -1;
+            } else {
+                offsets[col] = position;
+                position += columnWidth(col);
+            }
+        }
+        for (int col : columns) {
+            fields.add(decodeAt(offsets[col], col));
+        }
+        return fields;
+    }
+
+    private Object decodeField(int row, int col) {
+        return decodeAt(fieldOffset(row, col), col);
+    }
+
+    private Object decodeAt(int position, int col) {
+        if (position == -1) {
+            return null;
+        }
+        switch (types[col]) {
+            case INTEGER:
+                return data.getInt(position);
+            case DOUBLE:
+                return data.getDouble(position);
+            case BOOLEAN:
+                return data.get(position) == 1;
+            default:
+                return decodeString(position, col);
+        }
+    }
+
+    private String decodeString(int position, int col) {
+        byte[] bytes;
+        if (types[col] == VARCHAR) {
+            int varcharPointer = data.getInt(position);
+            bytes = new byte[data.getInt(position + Integer.BYTES)];
+            data.get(varcharPointer - address, bytes);
+        } else {
+            bytes = new byte[byteSizes[col]];
+            data.get(position, bytes);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * True if a field is still in the raw page, in which case it is read from data instead of records
+     */
+    private boolean isRaw(int row) {
+        return data != null && records.get(row) == null;
+    }
+
+    /**
+     * Gets one field without decoding the rest of the record
+     * @param row the row of the record
+     * @param col the index of the attribute
+     * @return the value, null if the field is null
+     */
+    public Object getValue(int row, int col) {
+        if (isRaw(row)) {
+            return decodeField(row, col);
+        }
+        return records.get(row).get(col);
+    }
+
+    public boolean isNull(int row, int col) {
+        if (isRaw(row)) {
+            return fieldOffset(row, col) == -1;
+        }
+        return records.get(row).get(col) == null;
+    }
+
+    /**
+     * Gets an INTEGER field without boxing it, the field must not be null
+     */
+    public int getInt(int row, int col) {
+        if (isRaw(row)) {
+            return data.getInt(fieldOffset(row, col));
+        }
+        return (int) records.get(row).get(col);
+    }
+
+    /**
+     * Gets a DOUBLE field without boxing it, the field must not be null
+     */
+    public double getDouble(int row, int col) {
+        if (isRaw(row)) {
+            return data.getDouble(fieldOffset(row, col));
+        }
+        return (double) records.get(row).get(col);
+    }
+
+    /**
+     * Gets a BOOLEAN field, the field must not be null
+     */
+    public boolean getBoolean(int row, int col) {
+        if (isRaw(row)) {
+            return data.get(fieldOffset(row, col)) == 1;
+        }
+        return (boolean) records.get(row).get(col);
+    }
+
+    /**
+     * Gets a CHAR or VARCHAR field
+     * @return the string or null if the field is null
+     */
+    public String getString(int row, int col) {
+        if (isRaw(row)) {
+            int position = fieldOffset(row, col);
+            return position == -1 ? null : decodeString(position, col);
+        }
+        return (String) records.get(row).get(col);
+    }
+
+    /**
+     * Reads an INTEGER column of every record, a null field is set in nulls and left 0 in values
+     * @param col the index of the attribute
+     * @param values filled with the fields, must hold numRows values
+     * @param nulls the rows whose field is null
+     */
+    public void getInts(int col, int[] values, BitSet nulls) {
+        for (int row = 0; row < numRows; row++) {
+            if (isRaw(row)) {
+                int position = fieldOffset(row, col);
+                if (position == -1) {
+                    nulls.set(row);
+                } else {
+                    values[row] = data.getInt(position);
+                }
+            } else {
+                Object value = records.get(row).get(col);
+                if (value == null) {
+                    nulls.set(row);
+                } else {
+                    values[row] = (int) value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a DOUBLE column of every record, a null field is set in nulls and left 0 in values
+     * @param col the index of the attribute
+     * @param values filled with the fields, must hold numRows values
+     * @param nulls the rows whose field is null
+     */
+    public void getDoubles(int col, double[] values, BitSet nulls) {
+        for (int row = 0; row < numRows; row++) {
+            if (isRaw(row)) {
+                int position = fieldOffset(row, col);
+                if (position == -1) {
+                    nulls.set(row);
+                } else {
+                    values[row] = data.getDouble(position);
+                }
+            } else {
+                Object value = records.get(row).get(col);
+                if (value == null) {
+                    nulls.set(row);
+                } else {
+                    values[row] = (double) value;
+                }
+            }
+        }
     }
 
     //Using index -1 or records.size will add record to the end of the list
     public void addRecord(ArrayList<Object> recordData, int index){
+        decodeAll();
         if(index < -1 || index > records.size()){
             throw new IndexOutOfBoundsException("gIndex: " + index + " out of bounds for Size: " + records.size());
         }
@@ -88,6 +481,7 @@ public class Page {
     }
 
     public void removeRecord(int index){
+        decodeAll();
         ArrayList<Object> recordData = this.records.get(index);
         this.records.remove(index);
         int length = getRecordLength(recordData);
@@ -97,6 +491,24 @@ public class Page {
         numRows--;
     }
 
+    /**
+     * Replaces a record in place, the page's free space grows or shrinks by the difference in size
+     * @param index the row of the record
+     * @param recordData the new record
+     * @return false if the new record does not fit in the page, the page is not changed
+     */
+    public boolean replaceRecord(int index, ArrayList<Object> recordData){
+        int growth = getRecordLength(recordData) - getRecordLength(getRecord(index));
+        if (growth > this.freeSpaceEnd - this.freeSpaceStart) {
+            return false;
+        }
+        decodeAll();
+        this.records.set(index, recordData);
+        this.freeSpaceEnd -= growth;
+        SetModified(true);
+        return true;
+    }
+
     // Wrapper function, removes the last element
     public void removeLastRecord(){
         removeRecord(records.size()-1);
@@ -107,6 +519,7 @@ public class Page {
      *
      */
     public ArrayList<ArrayList<Object>> arrayForSplit(ArrayList<Object> toBeInserted, int index){
+        decodeAll();
         if(index < -1 || index > records.size()){
             throw new IndexOutOfBoundsException("Index: " + index + " out of bounds for Size: " + records.size());
         }
@@ -121,7 +534,7 @@ public class Page {
     }
 
     private int getRecordLength(ArrayList<Object> recordData){
-        this.modified = true;
+        SetModified(true);
         Catalog catalog = Catalog.getInstance();
         TableSchema table = catalog.getTable(this.tableName);
         List<Attribute> attributes = table.getAttributes();
@@ -169,10 +582,6 @@ public class Page {
 //        this.freeSpaceEnd = (this.address+catalog.getPageSize()) - totalLength;
 //    }
 
-    public void updateLastUsed() {
-        this.lastUsed = Instant.now();
-    }
-
     public void setNumRows(int numRows) {
         this.numRows = numRows;
     }
@@ -0,0 +1,83 @@
+package Common;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * The records of a page as columns, so a where clause can be evaluated over the whole page at once. A column is
+ * only read from the page the first time it is asked for, INTEGER and DOUBLE columns into primitive arrays.
+ * The page must be latched while the batch is used
+ */
+public class PageBatch {
+    private final Page page;
+    private final int size;
+    private final Object[] columns;
+    private final BitSet[] nulls;
+
+    /**
+     * @param page the page
+     * @param columnCount the number of attributes of the table
+     */
+    public PageBatch(Page page, int columnCount) {
+        this.page = page;
+        this.size = page.getNumRows();
+        this.columns = new Object[columnCount];
+        this.nulls = new BitSet[columnCount];
+    }
+
+    /**
+     * @return the number of rows in the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    public ArrayList<Object> getRecord(int row) {
+        return page.getRecord(row);
+    }
+
+    public int[] getInts(int col) {
+        if (columns[col] == null) {
+            int[] values = new int[size];
+            nulls[col] = new BitSet(size);
+            page.getInts(col, values, nulls[col]);
+            columns[col] = values;
+        }
+        return (int[]) columns[col];
+    }
+
+    public double[] getDoubles(int col) {
+        if (columns[col] == null) {
+            double[] values = new double[size];
+            nulls[col] = new BitSet(size);
+            page.getDoubles(col, values, nulls[col]);
+            columns[col] = values;
+        }
+        return (double[]) columns[col];
+    }
+
+    /**
+     * Gets a CHAR or VARCHAR column, null fields are null in the array
+     */
+    public String[] getStrings(int col) {
+        if (columns[col] == null) {
+            String[] values = new String[size];
+            nulls[col] = new BitSet(size);
+            for (int row = 0; row < size; row++) {
+                values[row] = page.getString(row, col);
+                if (values[row] == null) {
+                    nulls[col].set(row);
+                }
+            }
+            columns[col] = values;
+        }
+        return (String[]) columns[col];
+    }
+
+    /**
+     * Gets the rows whose field is null in a column that has already been read
+     */
+    public BitSet getNulls(int col) {
+        return nulls[col];
+    }
+}
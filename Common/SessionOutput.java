@@ -0,0 +1,51 @@
+package Common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Standard output for the server. The parsers print their results with System.out, in server mode System.out
+ * writes through this stream and every thread's output goes to the client of the session it is running, output
+ * of threads that are not running a session goes to the console.
+ */
+public class SessionOutput extends OutputStream {
+    private static final ThreadLocal<OutputStream> sessions = new ThreadLocal<>();
+
+    private final OutputStream console;
+
+    public SessionOutput(OutputStream console) {
+        this.console = console;
+    }
+
+    /**
+     * Sends the output of the current thread to a session
+     * @param out the client's stream, or null to go back to the console
+     */
+    public static void setSession(OutputStream out) {
+        if (out == null) {
+            sessions.remove();
+        } else {
+            sessions.set(out);
+        }
+    }
+
+    private OutputStream target() {
+        OutputStream out = sessions.get();
+        return out == null ? console : out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        target().write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        target().write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        target().flush();
+    }
+}
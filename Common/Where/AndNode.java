@@ -1,8 +1,11 @@
 package Common.Where;
 
 import Catalog.TableSchema;
+import Catalog.ZoneMaps;
+import Common.PageBatch;
 
-import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 
 public class AndNode implements IWhereOp{
 
@@ -14,17 +17,48 @@ public class AndNode implements IWhereOp{
         right = n2;
     }
 
+    public IWhereOp getLeft() {
+        return left;
+    }
+
+    public IWhereOp getRight() {
+        return right;
+    }
+
     @Override
     public int getPriority() {
         return 2;
     }
 
     @Override
-    public boolean evaluate(ArrayList<Object> tuple, TableSchema tableSchema) {
-        if(left != null && right != null){
-            return left.evaluate(tuple,tableSchema) && right.evaluate(tuple,tableSchema);
+    public ICompiledWhere compile(TableSchema tableSchema) {
+        if(left == null || right == null){
+            //todo maybe throw an exception here, tree not defined
+            return tuple -> false;
         }
-        //todo maybe throw an exception here, tree not defined
-        return false;
+        ICompiledWhere compiledLeft = left.compile(tableSchema);
+        ICompiledWhere compiledRight = right.compile(tableSchema);
+        return new ICompiledWhere() {
+            @Override
+            public boolean evaluate(List<Object> tuple) {
+                return compiledLeft.evaluate(tuple) && compiledRight.evaluate(tuple);
+            }
+
+            @Override
+            public void evaluate(PageBatch batch, BitSet out) {
+                compiledLeft.evaluate(batch, out);
+                if (out.isEmpty()) {
+                    return;
+                }
+                BitSet right = new BitSet(batch.size());
+                compiledRight.evaluate(batch, right);
+                out.and(right);
+            }
+
+            @Override
+            public boolean mayMatch(ZoneMaps.Zone zone) {
+                return compiledLeft.mayMatch(zone) && compiledRight.mayMatch(zone);
+            }
+        };
     }
 }
@@ -12,6 +12,10 @@ public class AttributeNode implements IOperandNode{
     private String attributeName;
     private AttributeTypeEnum type;
     private String unqualifiedAttrName;
+    // the column found by the last resolveIndex and the schema version it was found in
+    private TableSchema resolvedSchema;
+    private int resolvedVersion;
+    private int resolvedIndex;
     /**
      * Creates an Attribute node
      * @param attributeName Name of the attribute
@@ -20,80 +24,95 @@ public class AttributeNode implements IOperandNode{
     public AttributeNode(String attributeName, TableSchema tableSchema)
     {
         this.attributeName = attributeName.toLowerCase();
-        boolean foundUnqualified = false;
-        boolean dupeUnqualified = false;
-        boolean foundQualified = false;
-        unqualifiedAttrName = this.attributeName;
-        if (unqualifiedAttrName.contains(".")){
-            unqualifiedAttrName = unqualifiedAttrName.substring(unqualifiedAttrName.indexOf(".") + 1);
-        }
-        Attribute temp = null;
-        for (Attribute a : tableSchema.getAttributes()){
-            String name = a.getName();
-            String unqualifiedName = name;
-            if(unqualifiedName.contains(".")){
-                unqualifiedName = unqualifiedName.substring(unqualifiedName.indexOf(".") + 1);
+        unqualifiedAttrName = this.attributeName.substring(this.attributeName.indexOf(".") + 1);
+        type = tableSchema.getAttributes().get(resolveIndex(tableSchema)).getDefinition().getType();
+    }
+    @Override
+    public Object getValue(List<Object> tuple, TableSchema tableSchema) {
+        return tuple.get(resolveIndex(tableSchema));
+    }
+
+    /**
+     * Resolves the attribute to its column once, tuples are then read by position
+     */
+    @Override
+    public ICompiledOperand compile(TableSchema tableSchema) {
+        int index = resolveIndex(tableSchema);
+        return new ICompiledOperand() {
+            @Override
+            public boolean isNull(List<Object> tuple) {
+                return tuple.get(index) == null;
             }
-            //qualified name guaranteed to be unique
-            if(name.equals(this.attributeName)){
-                foundQualified = true;
-                temp = a;
-                break;
+
+            @Override
+            public int getInt(List<Object> tuple) {
+                return (Integer) tuple.get(index);
             }
-            if(unqualifiedName.equals(unqualifiedAttrName)){
-                // two attributes, when unqualified become issue
-                dupeUnqualified = foundUnqualified;
-                foundUnqualified = true;
-                temp = a;
+
+            @Override
+            public double getDouble(List<Object> tuple) {
+                return (Double) tuple.get(index);
             }
-        }
-        if (temp == null){
-            throw new JottUnfoundAttributeException("Attribute name " + this.attributeName + " Not Found!");
-        }
-        //check if there was a duplicate unqualified And no qualified found
-        if (!foundQualified && dupeUnqualified){
-            throw new JottAmbiguousNameException("Attribute name " + this.attributeName + " Is ambiguous!");
-        }
-        type = temp.getDefinition().getType();
 
+            @Override
+            public Object getValue(List<Object> tuple) {
+                return tuple.get(index);
+            }
+        };
     }
-    @Override
-    public Object getValue(List<Object> tuple, TableSchema tableSchema) {
+
+    /**
+     * Finds the column of this attribute in a schema. The column is remembered until a different schema is given
+     * or the attributes of the schema change, so the name is only matched once for all the tuples of a schema
+     * @param tableSchema the schema of the tuples
+     * @return the index of the column in the tuples
+     */
+    final int resolveIndex(TableSchema tableSchema) {
+        if (tableSchema != resolvedSchema || tableSchema.getVersion() != resolvedVersion) {
+            resolvedIndex = findIndex(tableSchema);
+            resolvedSchema = tableSchema;
+            resolvedVersion = tableSchema.getVersion();
+        }
+        return resolvedIndex;
+    }
+
+    /**
+     * Matches the name against every attribute of a schema, a qualified name match wins over an unqualified one
+     */
+    private int findIndex(TableSchema tableSchema) {
+        List<Attribute> attributes = tableSchema.getAttributes();
         boolean foundUnqualified = false;
         boolean dupeUnqualified = false;
-        boolean foundQualified = false;
-        //index which we need to get from tuple
         int attributeIndex = -1;
-        for (int i = 0; i < tableSchema.getAttributes().size(); i++){
-            Attribute a = tableSchema.getAttributes().get(i);
-            String name = a.getName();
-            String unqualifiedName = name;
-            if(name.contains(".")){
-                unqualifiedName = unqualifiedName.substring(unqualifiedName.indexOf(",")+1);
-            }
-            //first check qualified name
-            if(name.equals(attributeName)){
-                foundQualified = true;
-                attributeIndex = i;
-                break;
+        for (int i = 0; i < attributes.size(); i++) {
+            String name = attributes.get(i).getName();
+            if (name.equals(attributeName)) {
+                return i;
             }
-            //unqualified does not break loop because need to check duplicate, or qualified match could be later
-            else if(unqualifiedName.equals(unqualifiedAttrName)) {
+            if (name.substring(name.indexOf(".") + 1).equals(unqualifiedAttrName)) {
                 dupeUnqualified = foundUnqualified;
                 foundUnqualified = true;
                 attributeIndex = i;
             }
         }
-        if(attributeIndex == -1){
+        if (attributeIndex == -1) {
             throw new JottUnfoundAttributeException("Attribute name " + attributeName + " Not Found!");
         }
-        if(!foundQualified && dupeUnqualified){
+        if (dupeUnqualified) {
             throw new JottAmbiguousNameException("Attribute name " + attributeName + " Is ambiguous!");
         }
+        return attributeIndex;
+    }
 
-        //now get index that should be the right attribute
-        return tuple.get(attributeIndex);
+    public String getAttributeName() {
+        return attributeName;
+    }
 
+    /**
+     * Gets the attribute name without any table qualifier
+     */
+    public String getUnqualifiedName() {
+        return unqualifiedAttrName;
     }
 
     @Override
@@ -11,11 +11,9 @@ public enum ComparisonOp {
     IS;
 
 
-    public boolean compare(Integer i1, Integer i2) {
-        if (this != IS && (i1 == null || i2 == null)) {
-            return false;
-        }
+    // IS is compiled to a null check, it never compares two values
 
+    public boolean compare(int i1, int i2) {
         return switch (this) {
             case LESS_THAN -> i1 < i2;
             case LESS_THAN_EQUAL -> i1 <= i2;
@@ -23,14 +21,11 @@ public enum ComparisonOp {
             case GREATER_THAN_EQUAL -> i1 >= i2;
             case EQUAL -> i1 == i2;
             case NOT_EQUAL -> i1 != i2;
-            case IS -> i1 == null;
+            case IS -> false;
         };
     }
 
-    public boolean compare(Double i1, Double i2) {
-        if (this != IS && (i1 == null || i2 == null)) {
-            return false;
-        }
+    public boolean compare(double i1, double i2) {
         return switch (this) {
             case LESS_THAN -> i1 < i2;
             case LESS_THAN_EQUAL -> i1 <= i2;
@@ -38,14 +33,11 @@ public enum ComparisonOp {
             case GREATER_THAN_EQUAL -> i1 >= i2;
             case EQUAL -> i1 == i2;
             case NOT_EQUAL -> i1 != i2;
-            case IS -> i1 == null;
+            case IS -> false;
         };
     }
 
-    public boolean compare(Boolean i1, Boolean i2) {
-        if (this != IS && (i1 == null || i2 == null)) {
-            return false;
-        }
+    public boolean compare(boolean i1, boolean i2) {
         return switch (this) {
             case EQUAL -> i1 == i2;
             case NOT_EQUAL -> i1 != i2;
@@ -53,16 +45,11 @@ public enum ComparisonOp {
             case LESS_THAN_EQUAL -> !i1 || i2;
             case GREATER_THAN -> i1 && !i2;
             case GREATER_THAN_EQUAL -> i1 || !i2;
-            case IS -> i1 == null;
-            default -> false;
-            //is this one needed?
+            case IS -> false;
         };
     }
 
     public boolean compare(String i1, String i2) {
-        if (this != IS && (i1 == null || i2 == null)) {
-            return false;
-        }
         return switch (this) {
             case LESS_THAN -> i1.compareTo(i2) <0;
             case LESS_THAN_EQUAL -> i1.compareTo(i2) <=0;
@@ -70,10 +57,57 @@ public enum ComparisonOp {
             case GREATER_THAN_EQUAL ->i1.compareTo(i2) >=0;
             case EQUAL -> i1.equals(i2);
             case NOT_EQUAL -> ! i1.equals(i2);
-            case IS -> i1 == null;
+            case IS -> false;
+        };
+    }
+
+    /**
+     * Checks whether a column whose values are all between min and max can have a value that compares true to a
+     * constant. A column with no values has min above max and never does
+     */
+    public boolean mayMatch(double min, double max, double constant) {
+        return switch (this) {
+            case LESS_THAN -> min < constant;
+            case LESS_THAN_EQUAL -> min <= constant;
+            case GREATER_THAN -> max > constant;
+            case GREATER_THAN_EQUAL -> max >= constant;
+            case EQUAL -> min <= constant && constant <= max;
+            case NOT_EQUAL -> min <= max && (min != constant || max != constant);
+            case IS -> true;
         };
     }
 
+    /**
+     * Compares a column to a constant, the bit of every value that compares true is set in words. The operator is
+     * picked once so each loop has no branches the JIT cannot turn into vector instructions
+     * @param values the column
+     * @param constant the constant the column is compared to
+     * @param words the bits of a BitSet, one bit per value
+     */
+    public void select(int[] values, int constant, long[] words) {
+        switch (this) {
+            case LESS_THAN -> { for (int i = 0; i < values.length; i++) words[i >>> 6] |= (values[i] < constant ? 1L : 0L) << i; }
+            case LESS_THAN_EQUAL -> { for (int i = 0; i < values.length; i++) words[i >>> 6] |= (values[i] <= constant ? 1L : 0L) << i; }
+            case GREATER_THAN -> { for (int i = 0; i < values.length; i++) words[i >>> 6] |= (values[i] > constant ? 1L : 0L) << i; }
+            case GREATER_THAN_EQUAL -> { for (int i = 0; i < values.length; i++) words[i >>> 6] |= (values[i] >= constant ? 1L : 0L) << i; }
+            case EQUAL -> { for (int i = 0; i < values.length; i++) words[i >>> 6] |= (values[i] == constant ? 1L : 0L) << i; }
+            case NOT_EQUAL -> { for (int i = 0; i < values.length; i++) words[i >>> 6] |= (values[i] != constant ? 1L : 0L) << i; }
+            case IS -> { }
+        }
+    }
+
+    public void select(double[] values, double constant, long[] words) {
+        switch (this) {
+            case LESS_THAN -> { for (int i = 0; i < values.length; i++) words[i >>> 6] |= (values[i] < constant ? 1L : 0L) << i; }
+            case LESS_THAN_EQUAL -> { for (int i = 0; i < values.length; i++) words[i >>> 6] |= (values[i] <= constant ? 1L : 0L) << i; }
+            case GREATER_THAN -> { for (int i = 0; i < values.length; i++) words[i >>> 6] |= (values[i] > constant ? 1L : 0L) << i; }
+            case GREATER_THAN_EQUAL -> { for (int i = 0; i < values.length; i++) words[i >>> 6] |= (values[i] >= constant ? 1L : 0L) << i; }
+            case EQUAL -> { for (int i = 0; i < values.length; i++) words[i >>> 6] |= (values[i] == constant ? 1L : 0L) << i; }
+            case NOT_EQUAL -> { for (int i = 0; i < values.length; i++) words[i >>> 6] |= (values[i] != constant ? 1L : 0L) << i; }
+            case IS -> { }
+        }
+    }
+
     public static ComparisonOp getOp(String operation) throws BadOperatorException{
         return switch(operation){
           case "<" -> ComparisonOp.LESS_THAN;
@@ -0,0 +1,18 @@
+package Common.Where;
+
+import java.util.List;
+
+/**
+ * An operand compiled against a schema. Integer and double operands are read with getInt and getDouble so math
+ * and comparisons on them never box, the other types are read with getValue
+ */
+public interface ICompiledOperand {
+
+    public boolean isNull(List<Object> tuple);
+
+    public int getInt(List<Object> tuple);
+
+    public double getDouble(List<Object> tuple);
+
+    public Object getValue(List<Object> tuple);
+}
@@ -0,0 +1,46 @@
+package Common.Where;
+
+import Catalog.ZoneMaps;
+import Common.PageBatch;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A where clause compiled against the schema of the rows it filters. Columns are resolved to their positions and
+ * operand types are checked once when the clause is compiled, evaluating a row only reads and compares values.
+ * Rows can be evaluated one at a time or a page at a time
+ */
+public interface ICompiledWhere {
+
+    /**
+     * Evaluates a tuple
+     * @return whether or not the tuple satisfies the where clause
+     */
+    public boolean evaluate(List<Object> tuple);
+
+    /**
+     * Evaluates every row of a page. Comparisons of a column to a constant run over the column's array, anything
+     * else is evaluated a record at a time
+     * @param batch the rows
+     * @param out set to the rows that satisfy the where clause
+     */
+    public default void evaluate(PageBatch batch, BitSet out) {
+        out.clear();
+        for (int row = 0; row < batch.size(); row++) {
+            if (evaluate(batch.getRecord(row))) {
+                out.set(row);
+            }
+        }
+    }
+
+    /**
+     * Checks whether any record of a page could satisfy the where clause from the ranges of values in its zone map.
+     * Only comparisons of an INTEGER or DOUBLE column to a constant use the ranges, anything else may match
+     * @param zone the zone map of the page
+     * @return false if no record of the page can satisfy the where clause
+     */
+    public default boolean mayMatch(ZoneMaps.Zone zone) {
+        return true;
+    }
+}
@@ -9,4 +9,9 @@ public interface IOperandNode {
     public Object getValue(List<Object> tuple, TableSchema tableSchema);
 
     public AttributeTypeEnum getType();
+
+    /**
+     * Compiles the operand for the rows of a schema, attributes are resolved to their column here
+     */
+    public ICompiledOperand compile(TableSchema tableSchema);
 }
@@ -2,8 +2,6 @@ package Common.Where;
 
 import Catalog.TableSchema;
 
-import java.util.ArrayList;
-
 public interface IWhereOp {
 
     /**
@@ -14,10 +12,11 @@ public interface IWhereOp {
     public int getPriority();
 
     /**
-     * Evaluates a tuple
-     * @return whether or not the tuple satistfies this WhereOp
+     * Compiles this WhereOp for the rows of a schema, checking the types of its operands
+     * @param tableSchema the schema of the tuples that will be evaluated
+     * @return the compiled WhereOp
      */
-    public boolean evaluate(ArrayList<Object> tuple, TableSchema tableSchema);
+    public ICompiledWhere compile(TableSchema tableSchema);
 
 
 }
@@ -40,6 +40,40 @@ public class MathOpNode implements IOperandNode{
         }
     }
 
+    /**
+     * Compiles both sides, the result type is checked here once instead of for every tuple
+     */
+    @Override
+    public ICompiledOperand compile(TableSchema tableSchema) {
+        AttributeTypeEnum type = getType();
+        ICompiledOperand compiledLeft = left.compile(tableSchema);
+        ICompiledOperand compiledRight = right.compile(tableSchema);
+        return new ICompiledOperand() {
+            @Override
+            public boolean isNull(List<Object> tuple) {
+                return compiledLeft.isNull(tuple) || compiledRight.isNull(tuple);
+            }
+
+            @Override
+            public int getInt(List<Object> tuple) {
+                return operation.calculate(compiledLeft.getInt(tuple), compiledRight.getInt(tuple));
+            }
+
+            @Override
+            public double getDouble(List<Object> tuple) {
+                return operation.calculate(compiledLeft.getDouble(tuple), compiledRight.getDouble(tuple));
+            }
+
+            @Override
+            public Object getValue(List<Object> tuple) {
+                if (isNull(tuple)) {
+                    return null;
+                }
+                return type == AttributeTypeEnum.DOUBLE ? (Object) getDouble(tuple) : (Object) getInt(tuple);
+            }
+        };
+    }
+
     @Override
     public AttributeTypeEnum getType() {
         if(left.getType().equals(right.getType())){
@@ -1,8 +1,11 @@
 package Common.Where;
 
 import Catalog.TableSchema;
+import Catalog.ZoneMaps;
+import Common.PageBatch;
 
-import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 
 public class OrNode implements IWhereOp{
 
@@ -20,10 +23,30 @@ public class OrNode implements IWhereOp{
     }
 
     @Override
-    public boolean evaluate(ArrayList<Object> tuple, TableSchema tableSchema) {
-        if(left != null && right != null){
-            return left.evaluate(tuple,tableSchema) || right.evaluate(tuple,tableSchema);
+    public ICompiledWhere compile(TableSchema tableSchema) {
+        if(left == null || right == null){
+            return tuple -> false;
         }
-        return false;
+        ICompiledWhere compiledLeft = left.compile(tableSchema);
+        ICompiledWhere compiledRight = right.compile(tableSchema);
+        return new ICompiledWhere() {
+            @Override
+            public boolean evaluate(List<Object> tuple) {
+                return compiledLeft.evaluate(tuple) || compiledRight.evaluate(tuple);
+            }
+
+            @Override
+            public void evaluate(PageBatch batch, BitSet out) {
+                compiledLeft.evaluate(batch, out);
+                BitSet right = new BitSet(batch.size());
+                compiledRight.evaluate(batch, right);
+                out.or(right);
+            }
+
+            @Override
+            public boolean mayMatch(ZoneMaps.Zone zone) {
+                return compiledLeft.mayMatch(zone) || compiledRight.mayMatch(zone);
+            }
+        };
     }
 }
@@ -2,9 +2,11 @@ package Common.Where;
 
 import AttributeInfo.AttributeTypeEnum;
 import Catalog.TableSchema;
-import Common.Logger;
+import Catalog.ZoneMaps;
+import Common.PageBatch;
 
-import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 
 public class RelOpNode implements IWhereOp{
     private IOperandNode left;
@@ -17,61 +19,136 @@ public class RelOpNode implements IWhereOp{
         op = ComparisonOp.getOp((relOp));
     }
 
+    public IOperandNode getLeft() {
+        return left;
+    }
+
+    public IOperandNode getRight() {
+        return right;
+    }
+
+    public ComparisonOp getOp() {
+        return op;
+    }
+
     @Override
     public int getPriority() {
         return 3;
     }
 
+    /**
+     * Checks the operand types once and picks the comparison for them. A column compared to a constant, the usual
+     * filter, reads the column straight from the tuple, or compares the whole column of a page in one loop. A
+     * comparison of an INTEGER or DOUBLE column to a constant also checks the ranges in zone maps
+     */
     @Override
-    public boolean evaluate(ArrayList<Object> tuple, TableSchema tableSchema) {
-        Object val1 = left.getValue(tuple,tableSchema);
-        Object val2 = right.getValue(tuple,tableSchema);
-
+    public ICompiledWhere compile(TableSchema tableSchema) {
+        ICompiledOperand compiledLeft = left.compile(tableSchema);
+        if (op == ComparisonOp.IS) {
+            return compiledLeft::isNull;
+        }
 
-        if(left.getType() != right.getType() && op != ComparisonOp.IS &&
+        if(left.getType() != right.getType() &&
          !((left.getType() == AttributeTypeEnum.VARCHAR || left.getType() == AttributeTypeEnum.CHAR) &&
                  (right.getType() == AttributeTypeEnum.VARCHAR || right.getType() == AttributeTypeEnum.CHAR))){
             throw new JottTypeMismatchException("Types " + left.getType() + " and " + right.getType() + " Do not match!");
         }
+        ICompiledOperand compiledRight = right.compile(tableSchema);
+        ComparisonOp op = this.op;
+        boolean columnToConstant = left instanceof AttributeNode && right instanceof ValueNode
+                && !compiledRight.isNull(null);
+        int column = columnToConstant ? ((AttributeNode) left).resolveIndex(tableSchema) : -1;
 
-        if (op != ComparisonOp.IS && (val1 == null || val2 == null)){
-            return false;
-        }
-
-        //the is Checks are very jank here.
         switch(left.getType()){
             case INTEGER:
-                int v1 = (int)val1;
-                if (op == ComparisonOp.IS){
-                    return op.compare(v1,v1);
+                if (columnToConstant) {
+                    int constant = compiledRight.getInt(null);
+                    return new ICompiledWhere() {
+                        @Override
+                        public boolean evaluate(List<Object> tuple) {
+                            Object value = tuple.get(column);
+                            return value != null && op.compare((int) value, constant);
+                        }
+
+                        @Override
+                        public void evaluate(PageBatch batch, BitSet out) {
+                            long[] words = new long[(batch.size() + 63) >>> 6];
+                            op.select(batch.getInts(column), constant, words);
+                            select(batch, column, words, out);
+                        }
+
+                        @Override
+                        public boolean mayMatch(ZoneMaps.Zone zone) {
+                            return op.mayMatch(zone.getMin(column), zone.getMax(column), constant);
+                        }
+                    };
                 }
-                int v2 = (int)val2;
-                return op.compare(v1,v2);
+                return tuple -> !compiledLeft.isNull(tuple) && !compiledRight.isNull(tuple)
+                        && op.compare(compiledLeft.getInt(tuple), compiledRight.getInt(tuple));
             case DOUBLE:
-                double d1 = (double) val1;
-                if (op == ComparisonOp.IS){
-                    return op.compare(d1,d1);
+                if (columnToConstant) {
+                    double constant = compiledRight.getDouble(null);
+                    return new ICompiledWhere() {
+                        @Override
+                        public boolean evaluate(List<Object> tuple) {
+                            Object value = tuple.get(column);
+                            return value != null && op.compare((double) value, constant);
+                        }
+
+                        @Override
+                        public void evaluate(PageBatch batch, BitSet out) {
+                            long[] words = new long[(batch.size() + 63) >>> 6];
+                            op.select(batch.getDoubles(column), constant, words);
+                            select(batch, column, words, out);
+                        }
+
+                        @Override
+                        public boolean mayMatch(ZoneMaps.Zone zone) {
+                            return op.mayMatch(zone.getMin(column), zone.getMax(column), constant);
+                        }
+                    };
                 }
-                double d2 = (double) val2;
-                return op.compare(d1,d2);
+                return tuple -> !compiledLeft.isNull(tuple) && !compiledRight.isNull(tuple)
+                        && op.compare(compiledLeft.getDouble(tuple), compiledRight.getDouble(tuple));
             case BOOLEAN:
-                boolean b1 = (boolean) val1;
-                if (op == ComparisonOp.IS){
-                    return op.compare(b1,b1);
-                }
-                boolean b2 = (boolean) val2;
-                return op.compare(b1, b2);
+                return tuple -> !compiledLeft.isNull(tuple) && !compiledRight.isNull(tuple)
+                        && op.compare((boolean) compiledLeft.getValue(tuple), (boolean) compiledRight.getValue(tuple));
             case VARCHAR:
             case CHAR:
-                String s1 = (String) val1;
-                if (op == ComparisonOp.IS){
-                    return op.compare(s1,s1);
+                if (columnToConstant) {
+                    String constant = (String) compiledRight.getValue(null);
+                    return new ICompiledWhere() {
+                        @Override
+                        public boolean evaluate(List<Object> tuple) {
+                            Object value = tuple.get(column);
+                            return value != null && op.compare((String) value, constant);
+                        }
+
+                        @Override
+                        public void evaluate(PageBatch batch, BitSet out) {
+                            out.clear();
+                            String[] values = batch.getStrings(column);
+                            for (int row = 0; row < values.length; row++) {
+                                if (values[row] != null && op.compare(values[row], constant)) {
+                                    out.set(row);
+                                }
+                            }
+                        }
+                    };
                 }
-                String s2 = (String) val2;
-                return op.compare(s1, s2);
+                return tuple -> !compiledLeft.isNull(tuple) && !compiledRight.isNull(tuple)
+                        && op.compare((String) compiledLeft.getValue(tuple), (String) compiledRight.getValue(tuple));
             default:
-                System.out.println("How did you even get here......");
-                return false;
+                throw new JottTypeMismatchException("Type " + left.getType() + " can not be compared!");
         }
     }
+
+    /**
+     * Sets out to the rows whose bit is set in words and whose field is not null
+     */
+    private static void select(PageBatch batch, int column, long[] words, BitSet out) {
+        out.clear();
+        out.or(BitSet.valueOf(words));
+        out.andNot(batch.getNulls(column));
+    }
 }
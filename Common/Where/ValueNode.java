@@ -29,6 +29,37 @@ public class ValueNode implements IOperandNode{
         return value;
     }
 
+    /**
+     * Parses the value once, every tuple gets the same constant
+     */
+    @Override
+    public ICompiledOperand compile(TableSchema tableSchema) {
+        Object constant = getValue(null, tableSchema);
+        int intValue = constant instanceof Integer ? (int) constant : 0;
+        double doubleValue = constant instanceof Double ? (double) constant : 0;
+        return new ICompiledOperand() {
+            @Override
+            public boolean isNull(List<Object> tuple) {
+                return constant == null;
+            }
+
+            @Override
+            public int getInt(List<Object> tuple) {
+                return intValue;
+            }
+
+            @Override
+            public double getDouble(List<Object> tuple) {
+                return doubleValue;
+            }
+
+            @Override
+            public Object getValue(List<Object> tuple) {
+                return constant;
+            }
+        };
+    }
+
     @Override
     public AttributeTypeEnum getType() {
         return type;
@@ -11,6 +11,7 @@ import StorageManager.StorageManager;
 import java.sql.SQLSyntaxErrorException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * Class to handle running an alter table, in which an attribute is added
@@ -21,7 +22,8 @@ public class AlterTableAdd implements Command {
     private static final int TABLE_NAME_INDEX = 2;
     private static final int NEW_ATT_NAME_INDEX = 4;
     private static final int NEW_ATT_TYPE_INDEX = 5;
-    private static final String TEMP_TABLE_NAME = "$temp";
+    // unique for every statement so the temp tables of different sessions never clash
+    private final String TEMP_TABLE_NAME = "$temp_" + UUID.randomUUID().toString().replace("-", "");
 
     @Override
     public boolean run(String[] command) throws SQLSyntaxErrorException {
@@ -156,6 +158,7 @@ public class AlterTableAdd implements Command {
         try {
             //make new schema
             TableSchema newTable = new TableSchema(TEMP_TABLE_NAME, defs);
+            newTable.setColumnar(tableSchema.isColumnar());
 
             StorageManager sm = StorageManager.getStorageManager();
             sm.CreateTable(newTable);
@@ -11,6 +11,7 @@ import StorageManager.StorageManager;
 import java.sql.SQLSyntaxErrorException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 public class AlterTableDrop implements Command {
 
@@ -26,7 +27,7 @@ public class AlterTableDrop implements Command {
     public boolean run(String[] command) throws SQLSyntaxErrorException {
         int TABLE_NAME_INDEX = 2;
         int ATTRIBUTE_NAME_INDEX = 4;
-        String TEMP_TABLE_NAME = "$temp";
+        String TEMP_TABLE_NAME = "$temp_" + UUID.randomUUID().toString().replace("-", "");
 
         Catalog catalog = Catalog.getInstance();
         String tableName = command[TABLE_NAME_INDEX].toLowerCase();
@@ -71,6 +72,7 @@ public class AlterTableDrop implements Command {
         }
 
         TableSchema newTable = new TableSchema(TEMP_TABLE_NAME, newAttributes);
+        newTable.setColumnar(originalTable.isColumnar());
 
         // Add all old rows to new table
         try{
@@ -40,6 +40,14 @@ public class CreateTable implements Command {
         }
         
         String attributeSection = fullCommand.substring(openParen + 1, closeParen).trim();
+
+        // COLUMNAR after the attributes stores the table's pages column by column
+        String options = fullCommand.substring(closeParen + 1).replace(";", "").trim();
+        boolean columnar = options.equals("COLUMNAR");
+        if (!options.isEmpty() && !columnar) {
+            System.out.println("Unknown table option " + options + ", expected COLUMNAR");
+            return false;
+        }
         
         // Split by comma to get individual attribute definitions
         // Need to be careful not to split on commas inside CHAR(5) or VARCHAR(10)
@@ -138,6 +146,7 @@ public class CreateTable implements Command {
         }
         
         TableSchema table = new TableSchema(tableName, attributes);
+        table.setColumnar(columnar);
 
         //TODO do the storage manager call and see result, return based on that
         StorageManager sm = StorageManager.getStorageManager();
@@ -84,6 +84,11 @@ public class Insert implements Command {
             typedRows.add(typedRow);
         }
 
+        // A batch of rows is loaded in one pass over the table
+        if (typedRows.size() > 1) {
+            return bulkInsert(tableName, table, typedRows);
+        }
+
         // Track how many rows actually succeed
         int successCount = 0;
 
@@ -124,6 +129,83 @@ public class Insert implements Command {
         return true;
     }
 
+    /**
+     * Inserts a batch of rows with one pass over the table. The batch is sorted on the primary key so duplicates
+     * in the batch end up next to each other, and the sorted keys are looked up in the table page by page to find
+     * the ones that already exist. As with inserting row by row, the rows before the first row that breaks the primary key
+     * are inserted and the rest are not.
+     */
+    private boolean bulkInsert(String tableName, TableSchema table, List<List<Object>> rows) {
+        int pkIndex = table.getPrimaryKeyIndex();
+        int failedRow = rows.size();
+        String error = null;
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).get(pkIndex) == null) {
+                failedRow = i;
+                error = "Row " + (i + 1) + ": Primary key cannot be NULL";
+                break;
+            }
+            order.add(i);
+        }
+        // the sort is stable, so of the rows sharing a key the first one in the batch comes first
+        order.sort((a, b) -> compareKeys(rows.get(a).get(pkIndex), rows.get(b).get(pkIndex)));
+        List<Object> sortedKeys = new ArrayList<>();
+        for (int i = 0; i < order.size(); i++) {
+            Object key = rows.get(order.get(i)).get(pkIndex);
+            if (i > 0 && compareKeys(sortedKeys.get(sortedKeys.size() - 1), key) == 0) {
+                if (order.get(i) < failedRow) {
+                    failedRow = order.get(i);
+                    error = "Row " + (failedRow + 1) + ": Duplicate primary key value in batch";
+                }
+            } else {
+                sortedKeys.add(key);
+            }
+        }
+
+        int insertedCount = 0;
+        try {
+            StorageManager store = StorageManager.getStorageManager();
+            Set<Object> existing = store.existingKeys(tableName, sortedKeys);
+            for (int row : order) {
+                if (row < failedRow && existing.contains(rows.get(row).get(pkIndex))) {
+                    failedRow = row;
+                    error = "Row " + (row + 1) + ": Primary key violation, value already exists in table";
+                }
+            }
+
+            List<List<Object>> sortedRows = new ArrayList<>();
+            for (int row : order) {
+                if (row < failedRow) {
+                    sortedRows.add(rows.get(row));
+                }
+            }
+            if (!sortedRows.isEmpty()) {
+                store.bulkInsert(tableName, sortedRows);
+            }
+            insertedCount = sortedRows.size();
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+            return false;
+        }
+
+        if (error != null) {
+            System.out.println("Error: " + error);
+            if (insertedCount > 0) {
+                System.out.println(insertedCount + " row(s) inserted successfully");
+            }
+            return false;
+        }
+        System.out.println("Successfully inserted " + rows.size() + " row(s) into " + tableName);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compareKeys(Object key1, Object key2) {
+        return ((Comparable<Object>) key1).compareTo(key2);
+    }
+
     /**
      * Parses the VALUES clause to extract individual rows
      * JottQL syntax: VALUES ( val1, val2, val3 )
@@ -374,14 +456,23 @@ public class Insert implements Command {
         // Check against existing data in table
         try {
             StorageManager store = StorageManager.getStorageManager();
+            // The fence keys only cover the first primary key attribute, they lead to the one page the key can be in
+            if (pkIndices.size() == 1) {
+                if (!store.existingKeys(tableName, Collections.singletonList(row.get(pkIndices.get(0)))).isEmpty()) {
+                    throw new SQLSyntaxErrorException(
+                            "Row " + rowNum + ": Primary key violation, value already exists in table"
+                    );
+                }
+                pkValuesInBatch.add(pkKey);
+                return;
+            }
             Page currentPage = store.selectFirstPage(tableName);
 
             while (currentPage != null) {
                 for (int i = 0; i < currentPage.getNumRows(); i++) {
-                    List<Object> existingRow = currentPage.getRecord(i);
                     StringBuilder existingPK = new StringBuilder();
                     for (int pkIdx : pkIndices) {
-                        Object val = existingRow.get(pkIdx);
+                        Object val = currentPage.getValue(i, pkIdx);
                         existingPK.append(val != null ? val.toString() : "NULL").append("|");
                     }
                     if (existingPK.toString().equals(pkKey)) {
@@ -5,8 +5,9 @@ import Common.Command;
 import Catalog.Catalog;
 import Catalog.TableSchema;
 import Common.Logger;
-import Common.Page;
+import Common.Operators.*;
 import Common.Where.*;
+import StorageManager.BufferManager;
 import StorageManager.StorageManager;
 
 import java.sql.SQLSyntaxErrorException;
@@ -30,30 +31,25 @@ parseSelect(String[] command):
 
 1. Split (already assumed to be done so by ParserDML)
 
-2. from(from pieces) --> returns new table name
+2. from(from pieces) --> scans of each table, joined left to right. Tables compared with = in the where
+   clause are hash joined, the others are joined with a nested loop
 
-3. where(table name) --> returns new table name
+3. where(plan) --> filter on top of the plan
 
-4. order_by(table name) --> returns new table name
-
-5. select(table_name) --> returns nothing
-
-6. go back and remove all the temp tables
+4. order_by(plan) --> sort on top of the plan
 
+5. select(plan) --> projection on top of the plan, then the rows are printed
 
+Each step adds an operator to a pull based plan (see Common.Operators), rows stream from the pages to the
+output so no temp tables are created unless a hash join or a sort runs out of memory.
 
 */
 
 
 public class Select implements Command{
+    // rows held to find the column widths before printing starts
+    private static final int WIDTH_SAMPLE_ROWS = 1000;
 
-    /**
-     * Constant string used to indicate that this table is not new and thus should not be deleted
-     * For example, if I run SELECT * FROM t1; theres no projection and no cartesian product is made, thus neither will result in an 
-     * extra table that has to be deleted. To avoid any chance of collisions in strings, a random one was made. 
-     */
-    private static final String NONEWTABLE = "osnoiqnwdoiwqndoqiuiubibiubnd"; 
-        
     /**
      * Extracts everything between "start ... end" of a string
      * @param str the string being extracted from
@@ -90,21 +86,6 @@ public class Select implements Command{
         return this.extractMiddleSection(str, start, end, false); 
     }
 
-    private void cleanupTempTable(String tableName) {
-        if (tableName != null) {
-            try {
-                Catalog catalog = Catalog.getInstance();
-                if (catalog.tableExists(tableName)) {
-                    TableSchema schemaToDrop = catalog.getTable(tableName);
-
-                    StorageManager.getStorageManager().DropTable(schemaToDrop);
-                }
-            } catch (Exception cleanupException) {
-                Common.Logger.log("Failed to clean up temp order table: " + cleanupException.getMessage());
-            }
-        }
-    }
-
     /**
      * Checks if a string is present within some string
      * @param str the original string
@@ -117,36 +98,13 @@ public class Select implements Command{
     
 
     /**
-     * Helper class to track parsing results including table names and 
-     * whether they represent temporary resources that need cleanup.
+     * Checks that every table in the FROM clause exists
+     * @param fromSection the comma separated table names
+     * @return the table names in order
      */
-    private static class ParseResult {
-        public final String tableName;
-        public final boolean isTemporary;
-
-        public ParseResult(String tableName, boolean isTemporary) {
-            this.tableName = tableName;
-            this.isTemporary = isTemporary;
-        }
-    }
-
-    // this is the only one that can return the original table (never use NONEWTABLE)
-    // if the user does something like SELECT * FROM t1; then no new table is generated from the 
-    // FROM clause. 
-    // If a new table is generated return the new table name, true
-    // if no new table is generated, return the old table name, false
-    // this way future parts can get the table name but it won't be deleted by accident. 
-    private ParseResult fromParse(String fromSection) throws Exception {
-        // When cartesian product is implemented, create temp table with qualified attribute names
-        // Example: FROM A, B where A has (x,y) and B has (x,q) -> create temp table with (A.x, A.y, B.x, B.q)
-        String TEMP_TABLE_NAME = "$temp";
-        //String tableName = fromSection.trim();
-
-        // Check if table exists
+    private List<String> fromParse(String fromSection) throws SQLSyntaxErrorException {
         Catalog catalog = Catalog.getInstance();
-        StorageManager storageManager = StorageManager.getStorageManager();
-
-        ArrayList<String> tableNames = new ArrayList<>(Arrays.asList(fromSection.split(",")));
+        List<String> tableNames = new ArrayList<>(Arrays.asList(fromSection.split(",")));
 
         // Check if tables exist and ensure there is no whitespace attached
         for ( int i = 0; i < tableNames.size(); i++ ) {
@@ -156,158 +114,182 @@ public class Select implements Command{
                 throw new SQLSyntaxErrorException("Table: " + tableName + " does not exist");
             }
         }
+        return tableNames;
+    }
 
-        // Single table so just return original table
-        if (tableNames.size() == 1){
-            return new ParseResult(tableNames.get(0), false);
+    /**
+     * Builds the cartesian product of the tables, the first two tables are joined and the result is joined
+     * with the next table until one is left
+     * @param tableNames the tables from the FROM clause
+     * @return the plan producing the rows of the FROM clause
+     */
+    private Operator buildFrom(List<String> tableNames) {
+        Operator plan = new ScanOperator(tableNames.get(0));
+        for (int i = 1; i < tableNames.size(); i++) {
+            plan = new NestedLoopJoinOperator(plan, new ScanOperator(tableNames.get(i)));
         }
+        return plan;
+    }
 
-        // Multiple tables need to do a cartesian product
-
-        // while (length of table names > 1)
-        // get first two tables
-        // create a list of combined attributes
-        // Rename attriubtes to be tablename.attrname as long as current attrname doesn't contian a '.'
-        // Add them into  alist together
-        // create temp table
-        // for rows in t1
-        // for rows in t2
-        // combine t1 row and t2 row, add to table
-        // remove first element
-        // make second element equal to new temp table
-
-        int tableNameCounter = 0;
-        while (tableNames.size() > 1) {
-            TableSchema table1 = catalog.getTable(tableNames.get(0));
-            TableSchema table2 = catalog.getTable(tableNames.get(1));
-            List<Attribute> newAttributes = new ArrayList<>();
-
-            //Lambda statement to rename attributes and add them to the new list of attributes
-            table1.getAttributes().forEach(attr -> newAttributes.add(Attribute.rename(attr, (!attr.getName().contains(".")) ? table1.getTableName()+"."+attr.getName() : attr.getName())));
-            table2.getAttributes().forEach(attr -> newAttributes.add(Attribute.rename(attr, (!attr.getName().contains(".")) ? table2.getTableName()+"."+attr.getName() : attr.getName())));
-
-            // Create a temporary table, tableNameCounter is used in the case that there are 3 or more tables being
-            // combined and there will be an instance where more than one temp table will need to be created
-            TableSchema tempTable = new TableSchema(TEMP_TABLE_NAME + tableNameCounter, newAttributes);
-            storageManager.CreateTable(tempTable);
-
-            // Get the first page for the two tables
-            Page table1Page = storageManager.selectFirstPage(table1.getTableName());
-
-            int address = catalog.getAddressOfPage(tempTable.getTableName());
-
-            // Perform cartesian product and insert them into the temporary table
-            while (true){
-
-                for (int i = 0; i < table1Page.getNumRows(); i++){
-                    Page table2Page = storageManager.selectFirstPage(table2.getTableName());
-
-                    // for each row in table 1 add every row from table 2
-                    while(true) {
-                        List<List<Object>> newRows = new ArrayList<>();
-                        for (int j = 0; j < table2Page.getNumRows(); j++) {
-                            List<Object> newRow = new ArrayList<>();
-                            newRow.addAll(table1Page.getRecord(i));
-                            newRow.addAll(table2Page.getRecord(j));
-                            newRows.add(newRow);
-                        }
-
-                        // Insert rows in batches, a batch is one row from table1 combined with all rows from table2 in one page
-                        address = storageManager.heapInsert(tempTable.getTableName(), newRows, address);
-                        //if there is a new page move to it, otherwise move back to the outside table
-                        if (table2Page.getNextPage() != -1) {
-                            table2Page = storageManager.select(table2Page.getNextPage(), table2.getTableName());
-                        } else {
-                            break;
-                        }
-                    }
-                }
+    /**
+     * Splits a where tree into the conditions that are ANDed together
+     * @param whereTree the where tree
+     * @param conjuncts the list the conditions are added to
+     */
+    private void splitConjuncts(IWhereOp whereTree, List<IWhereOp> conjuncts) {
+        if (whereTree instanceof AndNode) {
+            AndNode andNode = (AndNode) whereTree;
+            splitConjuncts(andNode.getLeft(), conjuncts);
+            splitConjuncts(andNode.getRight(), conjuncts);
+        } else {
+            conjuncts.add(whereTree);
+        }
+    }
 
-                if(table1Page.getNextPage() != -1){
-                    table1Page = storageManager.select(table1Page.getNextPage(), table1.getTableName());
-                } else {
-                    break;
+    /**
+     * Finds the column an attribute node refers to, an exact name match wins over a match without the table name
+     * @param attributeNode the attribute
+     * @param schema the schema of the rows
+     * @return the index of the column, or -1 if it is not found or ambiguous
+     */
+    private int resolveColumn(AttributeNode attributeNode, TableSchema schema) {
+        List<Attribute> attributes = schema.getAttributes();
+        int match = -1;
+        for (int i = 0; i < attributes.size(); i++) {
+            String name = attributes.get(i).getName();
+            if (name.equals(attributeNode.getAttributeName())) {
+                return i;
+            }
+            if (name.substring(name.indexOf(".") + 1).equals(attributeNode.getUnqualifiedName())) {
+                if (match != -1) {
+                    return -1;
                 }
-
-            }
-            String usedTable = tableNames.remove(0);
-            if(usedTable.contains("$temp")){
-                Logger.log("Deleting table: "+usedTable);
-                storageManager.DropTable(catalog.getTable(usedTable));
+                match = i;
             }
-            tableNames.set(0, tempTable.getTableName());
-            tableNameCounter++;
-
         }
-
-
-        return new ParseResult(tableNames.get(0), true);
+        return match;
     }
 
-    // in theory this should always return a new table 
-    private ParseResult whereParse(String whereSection, String tempTableName) throws Exception {
-        Catalog catalog = Catalog.getInstance();
-        TableSchema newTable = new TableSchema("$where", catalog.getTable(tempTableName).getAttributes());
-            IWhereOp whereTree;
-        try {
-            whereTree = buildTree(whereSection, newTable);
-        } catch (Exception e) {
-            System.out.println(e.getMessage());
-            return new ParseResult("error", false);
-        }
-        if (whereTree == null) {
-            return new ParseResult("error", false);
-        }
-        StorageManager storageManager = StorageManager.getStorageManager();
-        storageManager.CreateTable(newTable);
-
-        //find start of old table
-        Page page = storageManager.selectFirstPage(tempTableName);
-        int address = catalog.getAddressOfPage("$where");
-        int nextPage = -1;
-        try {
-            while (page != null) {
-                for (int i = 0; i < page.getNumRows(); i++) {
-                    if (whereTree.evaluate(page.getRecord(i), newTable)) {
-                        address = storageManager.insertSingleRow("$where", page.getRecord(i), address);
-                    }
+    /**
+     * Builds the joins of the FROM clause, tables are joined left to right. A hash join is used when a condition
+     * compares a column of the next table to a column of the tables already joined with =, otherwise the
+     * cartesian product is taken with a nested loop join
+     * @param tableNames the tables from the FROM clause
+     * @param conjuncts the ANDed conditions of the where clause, the ones used as join keys are removed
+     * @return the plan producing the joined rows
+     */
+    private Operator buildJoins(List<String> tableNames, List<IWhereOp> conjuncts) {
+        TableSchema schema = this.buildFrom(tableNames).getSchema();
+        Operator plan = new ScanOperator(tableNames.get(0));
+        int start = plan.getSchema().getAttributes().size();
+        for (int i = 1; i < tableNames.size(); i++) {
+            Operator right = new ScanOperator(tableNames.get(i));
+            int end = start + right.getSchema().getAttributes().size();
+            List<Integer> leftKeys = new ArrayList<>();
+            List<Integer> rightKeys = new ArrayList<>();
+            Iterator<IWhereOp> iterator = conjuncts.iterator();
+            while (iterator.hasNext()) {
+                IWhereOp conjunct = iterator.next();
+                if (!(conjunct instanceof RelOpNode) || ((RelOpNode) conjunct).getOp() != ComparisonOp.EQUAL) {
+                    continue;
                 }
-                nextPage = page.getNextPage();
-                if (nextPage != -1) {
-                    page = storageManager.select(nextPage, tempTableName);
-                } else {
-                    page = null;
+                RelOpNode relOp = (RelOpNode) conjunct;
+                if (!(relOp.getLeft() instanceof AttributeNode) || !(relOp.getRight() instanceof AttributeNode)) {
+                    continue;
+                }
+                AttributeNode leftNode = (AttributeNode) relOp.getLeft();
+                AttributeNode rightNode = (AttributeNode) relOp.getRight();
+                // mismatched types are left to the filter so the same error is reported
+                boolean bothStrings = (leftNode.getType() == AttributeTypeEnum.CHAR || leftNode.getType() == AttributeTypeEnum.VARCHAR)
+                        && (rightNode.getType() == AttributeTypeEnum.CHAR || rightNode.getType() == AttributeTypeEnum.VARCHAR);
+                if (leftNode.getType() != rightNode.getType() && !bothStrings) {
+                    continue;
+                }
+                int leftColumn = resolveColumn(leftNode, schema);
+                int rightColumn = resolveColumn(rightNode, schema);
+                if (leftColumn == -1 || rightColumn == -1) {
+                    continue;
+                }
+                if (leftColumn >= start && leftColumn < end) {
+                    int swap = leftColumn;
+                    leftColumn = rightColumn;
+                    rightColumn = swap;
+                }
+                if (leftColumn < start && rightColumn >= start && rightColumn < end) {
+                    leftKeys.add(leftColumn);
+                    rightKeys.add(rightColumn - start);
+                    iterator.remove();
                 }
-
             }
+            if (leftKeys.isEmpty()) {
+                plan = new NestedLoopJoinOperator(plan, right);
+            } else {
+                Logger.log("Hash joining " + tableNames.get(i) + " on " + rightKeys.size() + " column(s)");
+                plan = new HashJoinOperator(plan, right,
+                        leftKeys.stream().mapToInt(Integer::intValue).toArray(),
+                        rightKeys.stream().mapToInt(Integer::intValue).toArray());
+            }
+            start = end;
         }
-        catch (Exception e){
-            System.out.println(e.getMessage());
-            return new ParseResult("error", true);
-        }
-        return new ParseResult("$where", true);
+        return plan;
+    }
+
+    /**
+     * Checks if a where clause is a single equality on the primary key of an indexed table, e.g. WHERE id = 5
+     * @param whereTree the where tree
+     * @param tableName the table being filtered
+     * @return the primary key value to look up, or null if the index can't be used
+     */
+    private Object findPrimaryKeyLookup(IWhereOp whereTree, String tableName) {
+        StorageManager storageManager = StorageManager.getStorageManager();
+        if (!(whereTree instanceof RelOpNode) || !storageManager.hasIndex(tableName)) {
+            return null;
+        }
+        RelOpNode relOp = (RelOpNode) whereTree;
+        if (relOp.getOp() != ComparisonOp.EQUAL) {
+            return null;
+        }
+        AttributeNode attributeNode;
+        ValueNode valueNode;
+        if (relOp.getLeft() instanceof AttributeNode && relOp.getRight() instanceof ValueNode) {
+            attributeNode = (AttributeNode) relOp.getLeft();
+            valueNode = (ValueNode) relOp.getRight();
+        } else if (relOp.getRight() instanceof AttributeNode && relOp.getLeft() instanceof ValueNode) {
+            attributeNode = (AttributeNode) relOp.getRight();
+            valueNode = (ValueNode) relOp.getLeft();
+        } else {
+            return null;
+        }
+        TableSchema schema = Catalog.getInstance().getTable(tableName);
+        Integer attributeIndex = schema.getAttributeIndex(attributeNode.getUnqualifiedName());
+        if (attributeIndex == null || !attributeIndex.equals(schema.getPrimaryKeyIndex())) {
+            return null;
+        }
+        // mismatched types are left to the normal evaluation so the same error is reported
+        AttributeTypeEnum keyType = attributeNode.getType();
+        AttributeTypeEnum valueType = valueNode.getType();
+        boolean bothStrings = (keyType == AttributeTypeEnum.CHAR || keyType == AttributeTypeEnum.VARCHAR)
+                && (valueType == AttributeTypeEnum.CHAR || valueType == AttributeTypeEnum.VARCHAR);
+        if (keyType != valueType && !bothStrings) {
+            return null;
+        }
+        return valueNode.getValue(null, schema);
     }
 
     /**
      * Resolves the attribute name for the order by clause, handling dot notation and ambiguity
      * @param orderSection The raw string of the attribute to sort by
-     * @param tableName The name of the table to check against
-     * @return The fully resolved attribute name as it appears in the schema
+     * @param schema The schema of the rows being sorted
+     * @param tableName The name of the table for single table queries
+     * @return The index of the attribute in the schema
      */
-    private String resolveAttribute(String orderSection, String tableName) throws SQLSyntaxErrorException {
+    private int resolveAttribute(String orderSection, TableSchema schema, String tableName) throws SQLSyntaxErrorException {
         // Clean the input
         String targetAttr = orderSection.trim().toLowerCase();
         if (targetAttr.endsWith(";")) {
             targetAttr = targetAttr.substring(0, targetAttr.length() - 1).trim();
         }
 
-        // get schema from catalog
-        Catalog catalog = Catalog.getInstance();
-        TableSchema schema = catalog.getTable(tableName);
-        if (schema == null) {
-            throw new SQLSyntaxErrorException("Table does not exist: " + tableName);
-        }
-
         List<Attribute> attributes = schema.getAttributes();
 
         // Handles the dot notation
@@ -320,17 +302,16 @@ public class Select implements Command{
             String reqTable = parts[0];
             String reqAttr = parts[1];
 
-            for (Attribute attr : attributes) {
-                String schemaAttrName = attr.getName().toLowerCase();
+            for (int i = 0; i < attributes.size(); i++) {
+                String schemaAttrName = attributes.get(i).getName().toLowerCase();
 
                 //  Match exactly for cartesian products where schema name is actually table.col
                 if (schemaAttrName.equals(targetAttr)) {
-                    return attr.getName();
+                    return i;
                 }
                 // Match unqualified schema name for single tables where schema is col but user typed table.col
-                else if (schemaAttrName.equals(reqAttr) &&
-                        (tableName.equalsIgnoreCase(reqTable) || tableName.startsWith("$temp_"))) {
-                    return attr.getName();
+                else if (schemaAttrName.equals(reqAttr) && tableName.equalsIgnoreCase(reqTable)) {
+                    return i;
                 }
             }
             throw new SQLSyntaxErrorException("Column not found: " + targetAttr);
@@ -339,15 +320,15 @@ public class Select implements Command{
         // Handles unqualified notationn, check for ambiguity
         else {
             int matchCount = 0;
-            String resolvedName = null;
+            int resolvedIndex = -1;
 
-            for (Attribute attr : attributes) {
-                String schemaAttrName = attr.getName();
+            for (int i = 0; i < attributes.size(); i++) {
+                String schemaAttrName = attributes.get(i).getName();
 
                 // match exact name or suffix
                 if (schemaAttrName.toLowerCase().equals(targetAttr) || schemaAttrName.toLowerCase().endsWith("." + targetAttr)) {
                     matchCount++;
-                    resolvedName = schemaAttrName;
+                    resolvedIndex = i;
                 }
             }
 
@@ -357,269 +338,28 @@ public class Select implements Command{
                 throw new SQLSyntaxErrorException("Ambiguous column name: " + targetAttr);
             }
 
-            return resolvedName; // 1 match found exactly
-        }
-    }
-
-    /**
-     * Generates a new TableSchema for the temporary sorting table
-     * The sorting attribute is promoted to the primary key, and all other primary keys are demoted
-     * @param originalTableName The name of the table to clone
-     * @param sortAttribute The resolved name of the attribute to sort by
-     * @return A new TableSchema representing the temporary table
-     */
-    private TableSchema createTempTableSchema(String originalTableName, String sortAttribute) {
-        // generates a unique temp table name to avoid collisions
-        String uniqueId = java.util.UUID.randomUUID().toString().replace("-", "");
-        String newTableName = "$temp_order_" + uniqueId;
-
-        // getting schema
-        Catalog catalog = Catalog.getInstance();
-        TableSchema originalSchema = catalog.getTable(originalTableName);
-        List<Attribute> originalAttributes = originalSchema.getAttributes();
-        List<Attribute> newAttributes = new ArrayList<>();
-
-        // just cloning and modifying attributes
-        for (Attribute attr : originalAttributes) {
-            AttributeDefinition oldDef = attr.getDefinition();
-            boolean isSortColumn = attr.getName().equals(sortAttribute);
-
-            // The sorting column becomes the PK and cannot be null
-            // All other columns are stripped of PK status but retain their previous nullability
-            boolean newIsPrimary = isSortColumn;
-            boolean newPossibleNull = isSortColumn ? false : oldDef.getIsPossibleNull();
-
-            AttributeDefinition newDef = null;
-
-            // Instantiate the correct concrete class based on the enum type
-            switch (oldDef.getType()) {
-                case INTEGER:
-                    // IntegerDefinition is the only one that requires the type enum passed in
-                    newDef = new IntegerDefinition(oldDef.getType(), newIsPrimary, newPossibleNull);
-                    break;
-                case DOUBLE:
-                    newDef = new DoubleDefinition(newIsPrimary, newPossibleNull);
-                    break;
-                case BOOLEAN:
-                    newDef = new BooleanDefinition(newIsPrimary, newPossibleNull);
-                    break;
-                case CHAR:
-                    newDef = new CharDefinition(newIsPrimary, newPossibleNull, oldDef.getMaxLength());
-                    break;
-                case VARCHAR:
-                    newDef = new VarCharDefinition(newIsPrimary, newPossibleNull, oldDef.getMaxLength());
-                    break;
-            }
-
-            // Creates the new attribute and add it to the list
-            Attribute newAttr = new Attribute(attr.getName(), newDef, attr.getDefaultValue());
-            newAttributes.add(newAttr);
-        }
-
-        // Return the new schema
-        return new TableSchema(newTableName, newAttributes);
-    }
-
-    /**
-     * Reads all records from the source table and inserts them into the destination table
-     * insert handles sorting since the sort column is the PK
-     * @param sourceTableName The name of the original table
-     * @param destTableName The name of the new temporary sorting table
-     * @param sortAttribute The name of the column to sort the records by
-     */
-    private void migrateData(String sourceTableName, String destTableName, String sortAttribute) throws Exception {
-        StorageManager sm = StorageManager.getStorageManager();
-        Catalog catalog = Catalog.getInstance();
-
-        // Finds the index of the column we want to sort by
-        TableSchema schema = catalog.getTable(sourceTableName);
-        int sortColIndex = -1;
-        for (int i = 0; i < schema.getAttributes().size(); i++) {
-            if (schema.getAttributes().get(i).getName().equals(sortAttribute)) {
-                sortColIndex = i;
-                break;
-            }
-        }
-
-        // reads all records into memory
-        List<List<Object>> allRecords = new ArrayList<>();
-        Page currentPage = sm.selectFirstPage(sourceTableName);
-
-        while (currentPage != null) {
-            for (int i = 0; i < currentPage.getNumRows(); i++) {
-                allRecords.add(new ArrayList<>(currentPage.getRecord(i)));
-            }
-            if (currentPage.getNextPage() != -1) {
-                currentPage = sm.select(currentPage.getNextPage(), sourceTableName);
-            } else {
-                break;
-            }
-        }
-
-        if (allRecords.isEmpty()) return;
-
-        // Sorts the records in memory
-        final int colIndex = sortColIndex;
-        allRecords.sort((row1, row2) -> {
-            Object val1 = row1.get(colIndex);
-            Object val2 = row2.get(colIndex);
-
-            if (val1 == null && val2 == null) return 0;
-            if (val1 == null) return -1; // Nulls come first
-            if (val2 == null) return 1;
-
-            return ((Comparable<Object>) val1).compareTo(val2);
-        });
-
-        // insert the newly sorted batch into the destination table
-        int destAddress = catalog.getAddressOfPage(destTableName);
-        sm.insert(destTableName, allRecords, destAddress);
-    }
-
-    /**
-     * Executes the order by clause by generating a temporary sorted table
-     * @param orderSection The raw string containing the attribute to sort by
-     * @param tempTableName The table currently being operated on
-     * @return A ParseResult containing the new sorted table's name and a flag for cleanup
-     */
-    private ParseResult orderByParse(String orderSection, String tempTableName) throws SQLSyntaxErrorException {
-        String newTableName = null;
-        try {
-            // Resolves the attribute name (handles dot notation and ambiguity)
-            String resolvedAttribute = resolveAttribute(orderSection, tempTableName);
-
-            // Generate the new schema with the sorting attribute as the primary Key
-            TableSchema newSchema = createTempTableSchema(tempTableName, resolvedAttribute);
-            newTableName = newSchema.getTableName();
-
-            // create the table in the storage manager
-            StorageManager.getStorageManager().CreateTable(newSchema);
-
-            //Migrate the data
-            migrateData(tempTableName, newTableName, resolvedAttribute);
-
-            // Return the new temporary table to the pipeline
-            return new ParseResult(newTableName, true);
-
-        } catch (SQLSyntaxErrorException e) {
-            cleanupTempTable(newTableName);
-            throw e;
-        } catch (Exception e) {
-            cleanupTempTable(newTableName);
-            throw new SQLSyntaxErrorException("Error during ORDER BY execution: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Executes a SELECT * query on the specified table
-     * @param tableName the name of the table to select from
-     * @throws SQLSyntaxErrorException if there's an error reading from the table
-     */
-    private void executeSelectAll(String tableName) throws SQLSyntaxErrorException {
-        Catalog cat = Catalog.getInstance();
-
-        // Verify that table exists
-        if (!cat.tableExists(tableName)){
-            throw new SQLSyntaxErrorException("Table does not exist: " + tableName);
-        }
-
-        StorageManager store = StorageManager.getStorageManager();
-        try {
-            Page currentPage = store.selectFirstPage(tableName);
-
-            if (currentPage == null) {
-                Logger.log("Table " + tableName + " is empty");
-                System.out.println("Table " + tableName + " is empty");
-                return;
-            }
-
-            // Get table schema for column names
-            TableSchema schema = cat.getTable(tableName);
-            List<Attribute> attributes = schema.getAttributes();
-
-            // Collect all rows first to calculate column widths
-            List<List<Object>> allRows = new ArrayList<>();
-            while (true){
-                for (int i = 0; i < currentPage.getNumRows(); i++){
-                    allRows.add(currentPage.getRecord(i));
-                }
-                if (currentPage.getNextPage() == -1){
-                    break;
-                }
-                currentPage = store.select(currentPage.getNextPage(), tableName);
-            }
-
-            // Calculate column widths
-            int[] columnWidths = new int[attributes.size()];
-            for (int i = 0; i < attributes.size(); i++) {
-                columnWidths[i] = attributes.get(i).getName().length();
-
-                for (List<Object> row : allRows) {
-                    String value = formatValue(row.get(i));
-                    columnWidths[i] = Math.max(columnWidths[i], value.length());
-                }
-
-                columnWidths[i] = Math.max(columnWidths[i], 4);
-            }
-
-            // Print header row
-            for (int i = 0; i < attributes.size(); i++) {
-                System.out.print("|");
-                System.out.print(String.format(" %" + columnWidths[i] + "s ",
-                    attributes.get(i).getName()));
-            }
-            System.out.println("|");
-
-            // Print separator line
-            for (int i = 0; i < attributes.size(); i++) {
-                System.out.print("-");
-                for (int j = 0; j < columnWidths[i] + 2; j++) {
-                    System.out.print("-");
-                }
-            }
-            System.out.println("-");
-
-            // Print data rows
-            for (List<Object> row : allRows) {
-                for (int i = 0; i < row.size(); i++) {
-                    System.out.print("|");
-                    String value = formatValue(row.get(i));
-                    System.out.print(String.format(" %" + columnWidths[i] + "s ", value));
-                }
-                System.out.println("|");
-            }
-
-        } catch (Exception e) {
-            throw new SQLSyntaxErrorException("Error reading from table: " + e.getMessage());
+            return resolvedIndex; // 1 match found exactly
         }
     }
 
     /**
-     * Executes a projection query (SELECT specific columns)
-     * @param tableName the name of the table to select from (could be a temp table from cartesian product)
+     * Finds the columns of a projection (SELECT specific columns)
      * @param projection comma-separated list of column names (may include dot notation)
-     * @throws SQLSyntaxErrorException if there's an error or column doesn't exist
+     * @param schema the schema of the rows being projected (could be a cartesian product)
+     * @param tableName the name of the table for single table queries
+     * @return the indexes of the projected columns
+     * @throws SQLSyntaxErrorException if a column doesn't exist or is ambiguous
      */
-    private void executeProjection(String tableName, String projection) throws SQLSyntaxErrorException {
-        Catalog cat = Catalog.getInstance();
-
-        // Verify that table exists
-        if (!cat.tableExists(tableName)){
-            throw new SQLSyntaxErrorException("Table does not exist: " + tableName);
-        }
-
+    private List<Integer> resolveProjection(String projection, TableSchema schema, String tableName) throws SQLSyntaxErrorException {
         // Parse projection attributes
         List<String> projectionList = Arrays.stream(projection.split(","))
             .map(String::trim)
             .collect(Collectors.toList());
 
-        // Get table schema
-        TableSchema schema = cat.getTable(tableName);
         List<Attribute> allAttributes = schema.getAttributes();
 
         // Find indices of projection attributes
         List<Integer> projectionIndices = new ArrayList<>();
-        List<Attribute> projectionAttributes = new ArrayList<>();
 
         for (String projAttr : projectionList) {
             // Check if this is a qualified name (table.attribute)
@@ -644,13 +384,11 @@ public class Select implements Command{
                     if (attrName.equals(requestedTable + "." + requestedAttr)) {
                         // Exact match with qualified name
                         projectionIndices.add(i);
-                        projectionAttributes.add(allAttributes.get(i));
                         found = true;
                         break;
                     } else if (attrName.equals(requestedAttr) && tableName.equalsIgnoreCase(requestedTable)) {
                         // Single table case: user qualified with table name, attribute is unqualified
                         projectionIndices.add(i);
-                        projectionAttributes.add(allAttributes.get(i));
                         found = true;
                         break;
                     }
@@ -685,57 +423,46 @@ public class Select implements Command{
                 } else {
                     // Exactly one match - unambiguous
                     projectionIndices.add(matchingIndices.get(0));
-                    projectionAttributes.add(allAttributes.get(matchingIndices.get(0)));
                 }
             }
         }
+        return projectionIndices;
+    }
 
-        StorageManager store = StorageManager.getStorageManager();
+    /**
+     * Runs a plan once and prints its rows as a table. The first rows are held to find the width of every column,
+     * the rest are printed as they come and a value wider than its column widens that row only
+     * @param plan the plan to run
+     * @return false if the plan failed
+     */
+    private boolean printResults(Operator plan) {
+        List<Attribute> attributes = plan.getSchema().getAttributes();
+        int[] columnWidths = new int[attributes.size()];
+        for (int i = 0; i < attributes.size(); i++) {
+            columnWidths[i] = Math.max(attributes.get(i).getName().length(), 4);
+        }
         try {
-            Page currentPage = store.selectFirstPage(tableName);
-
-            if (currentPage == null) {
-                Logger.log("Table " + tableName + " is empty");
-                System.out.println("Table " + tableName + " is empty");
-                return;
-            }
-
-            // Collect all rows
-            List<List<Object>> allRows = new ArrayList<>();
-            while (true){
-                for (int i = 0; i < currentPage.getNumRows(); i++){
-                    allRows.add(currentPage.getRecord(i));
-                }
-                if (currentPage.getNextPage() == -1){
-                    break;
-                }
-                currentPage = store.select(currentPage.getNextPage(), tableName);
-            }
-
-            // Calculate column widths for projection
-            int[] columnWidths = new int[projectionAttributes.size()];
-            for (int i = 0; i < projectionAttributes.size(); i++) {
-                columnWidths[i] = projectionAttributes.get(i).getName().length();
-
-                int colIndex = projectionIndices.get(i);
-                for (List<Object> row : allRows) {
-                    String value = formatValue(row.get(colIndex));
-                    columnWidths[i] = Math.max(columnWidths[i], value.length());
+            // Calculate column widths from the first rows
+            plan.open();
+            List<ArrayList<Object>> firstRows = new ArrayList<>();
+            ArrayList<Object> row = null;
+            while (firstRows.size() < WIDTH_SAMPLE_ROWS && (row = plan.next()) != null) {
+                firstRows.add(row);
+                for (int i = 0; i < attributes.size(); i++) {
+                    columnWidths[i] = Math.max(columnWidths[i], formatValue(row.get(i)).length());
                 }
-
-                columnWidths[i] = Math.max(columnWidths[i], 4);
             }
 
             // Print header row
-            for (int i = 0; i < projectionAttributes.size(); i++) {
+            for (int i = 0; i < attributes.size(); i++) {
                 System.out.print("|");
                 System.out.print(String.format(" %" + columnWidths[i] + "s ",
-                    projectionAttributes.get(i).getName()));
+                    attributes.get(i).getName()));
             }
             System.out.println("|");
 
             // Print separator line
-            for (int i = 0; i < projectionAttributes.size(); i++) {
+            for (int i = 0; i < attributes.size(); i++) {
                 System.out.print("-");
                 for (int j = 0; j < columnWidths[i] + 2; j++) {
                     System.out.print("-");
@@ -743,20 +470,35 @@ public class Select implements Command{
             }
             System.out.println("-");
 
-            // Print data rows (only projection columns)
-            for (List<Object> row : allRows) {
-                for (int i = 0; i < projectionIndices.size(); i++) {
-                    System.out.print("|");
-                    int colIndex = projectionIndices.get(i);
-                    String value = formatValue(row.get(colIndex));
-                    System.out.print(String.format(" %" + columnWidths[i] + "s ", value));
+            // Print data rows
+            for (ArrayList<Object> first : firstRows) {
+                printRow(first, columnWidths);
+            }
+            if (row != null) {
+                while ((row = plan.next()) != null) {
+                    printRow(row, columnWidths);
                 }
-                System.out.println("|");
             }
-
+            plan.close();
         } catch (Exception e) {
-            throw new SQLSyntaxErrorException("Error reading from table: " + e.getMessage());
+            System.out.println(e.getMessage());
+            try {
+                // lets go of the pages the plan still has pinned
+                plan.close();
+            } catch (Exception ignored) {
+            }
+            return false;
         }
+        return true;
+    }
+
+    private void printRow(ArrayList<Object> row, int[] columnWidths) {
+        for (int i = 0; i < row.size(); i++) {
+            System.out.print("|");
+            String value = formatValue(row.get(i));
+            System.out.print(String.format(" %" + columnWidths[i] + "s ", value));
+        }
+        System.out.println("|");
     }
 
     public boolean parseSelect(String[] command) throws Exception {
@@ -767,10 +509,20 @@ public class Select implements Command{
         String originalCommand = sb.toString();
         Logger.log("Original command is: " + originalCommand);
 
-        // Results from each section
-        ParseResult fromResult = null;
-        ParseResult whereResult = null;
-        ParseResult orderByResult = null;
+        // LIMIT SECTION (if LIMIT exists), it always comes last so it is cut off before the other sections
+        Integer limit = null;
+        if (this.stringExists(originalCommand, " LIMIT ")) {
+            String extractedLimit = extractMiddleSection(originalCommand, " LIMIT ", "", true);
+            try {
+                limit = Integer.parseInt(extractedLimit);
+            } catch (NumberFormatException e) {
+                throw new SQLSyntaxErrorException("Invalid LIMIT: " + extractedLimit);
+            }
+            if (limit < 0) {
+                throw new SQLSyntaxErrorException("Invalid LIMIT: " + extractedLimit);
+            }
+            originalCommand = originalCommand.substring(0, originalCommand.indexOf(" LIMIT ")) + " ";
+        }
 
         // FROM SECTION
         String extractedFrom = "";
@@ -783,15 +535,17 @@ public class Select implements Command{
         }
 
         Logger.log("Running the from section: " + extractedFrom);
+        List<String> tableNames;
         try {
-            fromResult = this.fromParse(extractedFrom);
+            tableNames = this.fromParse(extractedFrom);
         } catch (SQLSyntaxErrorException e) {
             System.out.println(e.getMessage());
             return false;
         }
         // every command must have a FROM clause
-        String currentWorkingTable = fromResult.tableName;
-        Logger.log("Working table from FROM: " + currentWorkingTable);
+        Operator plan = this.buildFrom(tableNames);
+        // qualified names like t.a can use the table name when there is only one table
+        String tableName = tableNames.size() == 1 ? tableNames.get(0) : plan.getSchema().getTableName();
 
         // WHERE SECTION (if WHERE exists)
         if (this.stringExists(originalCommand, "WHERE")){
@@ -805,21 +559,39 @@ public class Select implements Command{
             }
 
             Logger.log("Running where parse on: " + extractedWhere);
-            whereResult = this.whereParse(extractedWhere, currentWorkingTable);
-            if (whereResult.tableName.equals("error")) {
-                if(whereResult.isTemporary){
-                    Logger.log("Deleting temp where table: " + "$where");
-                    TableSchema temp = Catalog.getInstance().getTable("$where");
-                    StorageManager.getStorageManager().DropTable(temp);
-                    Catalog.getInstance().dropTable("$where");
-                }
+            IWhereOp whereTree;
+            try {
+                whereTree = buildTree(extractedWhere, plan.getSchema());
+            } catch (Exception e) {
+                System.out.println(e.getMessage());
+                return false;
+            }
+            if (whereTree == null) {
                 return false;
             }
 
-            if (!whereResult.tableName.equals(Select.NONEWTABLE)) {
-                currentWorkingTable = whereResult.tableName;
+            // go straight to the one page that can match when the index can be used
+            if (tableNames.size() == 1) {
+                Object indexKey = findPrimaryKeyLookup(whereTree, tableName);
+                if (indexKey != null) {
+                    Logger.log("Using primary key index of " + tableName + " for " + indexKey);
+                    plan = new ScanOperator(tableName, indexKey);
+                }
+            } else {
+                // equalities between the tables become hash joins, the rest is still filtered
+                List<IWhereOp> conjuncts = new ArrayList<>();
+                this.splitConjuncts(whereTree, conjuncts);
+                plan = this.buildJoins(tableNames, conjuncts);
+                whereTree = null;
+                for (IWhereOp conjunct : conjuncts) {
+                    whereTree = whereTree == null ? conjunct : new AndNode(whereTree, conjunct);
+                }
+            }
+            if (whereTree != null) {
+                // a single table is filtered a page at a time while it is scanned
+                plan = plan instanceof ScanOperator ? ((ScanOperator) plan).filter(whereTree)
+                        : new FilterOperator(plan, whereTree);
             }
-            Logger.log("Working table after WHERE: " + currentWorkingTable);
         }
 
         // ORDERING BY SECTION (if ordering by exists)
@@ -828,93 +600,28 @@ public class Select implements Command{
             String extractedOrderBy = this.extractMiddleSection(originalCommand, "ORDERBY", "", true);
 
             Logger.log("running ordering parse on: " + extractedOrderBy); 
-            orderByResult = this.orderByParse(extractedOrderBy, currentWorkingTable);
-
-            if (!orderByResult.tableName.equals(Select.NONEWTABLE)) {
-                currentWorkingTable = orderByResult.tableName;
-            }
-            Logger.log("Working table after ORDERING: " + currentWorkingTable);
+            plan = new SortOperator(plan, this.resolveAttribute(extractedOrderBy, plan.getSchema(), tableName));
         }
 
-
         // SELECT section
         String extractedSelect = this.extractMiddleSection(originalCommand, "SELECT", "FROM", true);
         Logger.log("SELECT section: " + extractedSelect);
 
-        if (extractedSelect.equals("*")) {
-            Logger.log("Executing SELECT * on " + currentWorkingTable);
-            this.executeSelectAll(currentWorkingTable);
-        } else {
-            Logger.log("Executing projection " + extractedSelect + " on " + currentWorkingTable);
-            this.executeProjection(currentWorkingTable, extractedSelect);
-        }
-
-        // CLEANUP SECTION
-        // We delete if isTemporary is true and it hasn't been passed forward to the next stage
-        // Note: In a real implementation, even if passed forward, you might delete the 'parent' temp table
-        // once the 'child' temp table is fully materialized.
-
-        if (orderByResult != null && orderByResult.isTemporary) {
-            Logger.log("Deleting temp order table: " + orderByResult.tableName);
-            StorageManager sm = StorageManager.getStorageManager();
-            Catalog cat = Catalog.getInstance();
-            TableSchema table = cat.getTable(orderByResult.tableName);
-            if(table == null){
-                Logger.log("Table " + orderByResult.tableName + " not found in catalog");
-                return false;
-            }
-            try {
-                sm.DropTable(table);
-            } catch (Exception e) {
-                System.out.println(e.getMessage());
-                throw new RuntimeException(e);
-            }
-        }
-        
-        if (whereResult != null && whereResult.isTemporary) {
-            // Only delete if it's not the same as the order table (which might have just been deleted)
-            if (orderByResult == null || !orderByResult.tableName.equals(whereResult.tableName)) {
-                Logger.log("Deleting temp where table: " + whereResult.tableName);
-                StorageManager sm = StorageManager.getStorageManager();
-                Catalog cat = Catalog.getInstance();
-                TableSchema table = cat.getTable(whereResult.tableName);
-                if(table == null){
-                    Logger.log("Table " + whereResult.tableName + " not found in catalog");
-                    return false;
-                }
-                try {
-                    sm.DropTable(table);
-                } catch (Exception e) {
-                    System.out.println(e.getMessage());
-                    throw new RuntimeException(e);
-                }
-            }
+        if (!extractedSelect.equals("*")) {
+            Logger.log("Executing projection " + extractedSelect);
+            List<Integer> columns = this.resolveProjection(extractedSelect, plan.getSchema(), tableName);
+            // a scan of a single table only decodes the columns that are selected
+            plan = plan instanceof ScanOperator ? ((ScanOperator) plan).project(columns)
+                    : new ProjectOperator(plan, columns);
         }
-
-        if (fromResult != null && fromResult.isTemporary) {
-            // Only delete if it's not the same as where or order tables
-            boolean matchesWhere = (whereResult != null && whereResult.tableName.equals(fromResult.tableName));
-            boolean matchesOrder = (orderByResult != null && orderByResult.tableName.equals(fromResult.tableName));
-            
-            if (!matchesWhere && !matchesOrder) {
-                Logger.log("Deleting temp from table: " + fromResult.tableName);
-                StorageManager sm = StorageManager.getStorageManager();
-                Catalog cat = Catalog.getInstance();
-                TableSchema table = cat.getTable(fromResult.tableName);
-                if(table == null){
-                    Logger.log("Table " + fromResult.tableName + " not found in catalog");
-                    return false;
-                }
-                try {
-                    sm.DropTable(table);
-                } catch (Exception e) {
-                    System.out.println(e.getMessage());
-                    throw new RuntimeException(e);
-                }
-            }
+        if (limit != null) {
+            plan = new LimitOperator(plan, limit);
         }
 
-        return true;
+        long pagesRead = BufferManager.getInstance().getPagesRead();
+        boolean success = this.printResults(plan);
+        Logger.log("Pages read: " + (BufferManager.getInstance().getPagesRead() - pagesRead));
+        return success;
     }
 
     @Override
@@ -1043,3 +750,4 @@ public class Select implements Command{
     }
 
 }
+
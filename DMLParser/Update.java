@@ -9,6 +9,7 @@ import Common.Command;
 import Common.Logger;
 import Common.Page;
 import Common.Where.BuildTree;
+import Common.Where.ICompiledWhere;
 import Common.Where.IWhereOp;
 import StorageManager.StorageManager;
 
@@ -115,6 +116,11 @@ public class Update implements Command {
 
         // *** Executes the update ***
         StorageManager store = StorageManager.getStorageManager();
+        if (!targetAttribute.getDefinition().getIsPrimary()) {
+            return updateInPlace(store, tableName, schema, hasWhere ? whereClause : null, targetColIndex,
+                    targetAttribute, rawNewValue);
+        }
+        // a new primary key can move the record anywhere in the table so the table is copied in key order
         int recordsUpdated = 0;
         String tempTableName = "temp_update_" + System.currentTimeMillis();
 
@@ -129,6 +135,7 @@ public class Update implements Command {
 
             // Creates temporary table to hold the updated data
             TableSchema tempSchema = new TableSchema(tempTableName, new ArrayList<>(attributes));
+            tempSchema.setColumnar(schema.isColumnar());
             store.CreateTable(tempSchema);
 
             // Builds the where tree if a where clause exists
@@ -139,6 +146,7 @@ public class Update implements Command {
                     throw new SQLSyntaxErrorException("Invalid WHERE clause syntax or types");
                 }
             }
+            ICompiledWhere condition = whereTree == null ? null : whereTree.compile(schema);
             // keep track of primary keys inserted into the temp table to prevent duplicates
             Set<String> tempTablePKs = new HashSet<>();
 
@@ -151,7 +159,7 @@ public class Update implements Command {
                         shouldUpdate = true; // update all rows
                     } else {
                         // Where evaluation here
-                        shouldUpdate = whereTree.evaluate(new ArrayList<>(row), schema);
+                        shouldUpdate = condition.evaluate(row);
                     }
 
                     // clone the row to prepare for insertion into the temp table
@@ -220,6 +228,42 @@ public class Update implements Command {
         return true;
     }
 
+    /**
+     * Updates a column that is not the primary key by changing the records where they are in the pages
+     * @param whereClause the where clause or null to update every record
+     */
+    private boolean updateInPlace(StorageManager store, String tableName, TableSchema schema, String whereClause,
+                                  int targetColIndex, Attribute targetAttribute, String rawNewValue)
+            throws SQLSyntaxErrorException {
+        try {
+            IWhereOp whereTree = null;
+            if (whereClause != null) {
+                whereTree = BuildTree.buildTree(whereClause, schema);
+                if (whereTree == null) {
+                    throw new SQLSyntaxErrorException("Invalid WHERE clause syntax or types");
+                }
+            }
+            ICompiledWhere condition = whereTree == null ? null : whereTree.compile(schema);
+            int recordsUpdated = store.update(tableName, row -> {
+                if (condition != null && !condition.evaluate(row)) {
+                    return null;
+                }
+                Object computedValue = evaluateExpression(rawNewValue, row, schema, targetAttribute);
+                // Checks for notnull constraint
+                if (computedValue == null && !targetAttribute.getDefinition().getIsPossibleNull()) {
+                    throw new SQLSyntaxErrorException("Attribute '" + targetAttribute.getName() + "' cannot be NULL");
+                }
+                ArrayList<Object> newRow = new ArrayList<>(row);
+                newRow.set(targetColIndex, computedValue);
+                return newRow;
+            });
+            System.out.println(recordsUpdated + " rows updated successfully.");
+        } catch (Exception e) {
+            throw new SQLSyntaxErrorException("Error during UPDATE execution: " + e.getMessage());
+        }
+        return true;
+    }
+
     /**
      * Checks if the right hand side is a math expression, attribute, or literal
      */
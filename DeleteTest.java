@@ -0,0 +1,67 @@
+import StorageManager.StorageManager;
+import Catalog.Catalog;
+import Catalog.TableSchema;
+import AttributeInfo.Attribute;
+import AttributeInfo.IntegerDefinition;
+import Common.Page;
+import Common.Logger;
+import java.util.*;
+
+public class DeleteTest {
+    public static void main(String[] args) {
+        Logger.initDebug(new String[]{});
+
+        try {
+            StorageManager.initDatabase("deletedb", 400, 10, true);
+            StorageManager store = StorageManager.getStorageManager();
+
+            System.out.println("\n=== Testing In Place Delete ===\n");
+
+            List<Attribute> attrs = new ArrayList<>();
+            attrs.add(new Attribute("num", new IntegerDefinition(null, true, false), null));
+            attrs.add(new Attribute("doubled", new IntegerDefinition(null, false, false), null));
+
+            TableSchema table = new TableSchema("DeleteTable", attrs);
+            store.CreateTable(table);
+            for (int i = 1; i <= 300; i++) {
+                store.insertSingleRow("DeleteTable", Arrays.asList(i, i * 2), -1);
+            }
+
+            int deleted = store.delete("DeleteTable", record -> (int) record.get(0) > 50 && (int) record.get(0) <= 250);
+            System.out.println(deleted == 200 ? "✓ PASSED: deleted 200 records"
+                    : "✗ FAILED: deleted " + deleted + " records");
+
+            List<Integer> remaining = new ArrayList<>();
+            Page page = store.selectFirstPage("DeleteTable");
+            while (true) {
+                for (int r = 0; r < page.getNumRows(); r++) {
+                    remaining.add((Integer) page.getRecord(r).get(0));
+                }
+                if (page.getNextPage() == -1) {
+                    break;
+                }
+                page = store.select(page.getNextPage(), "DeleteTable");
+            }
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 1; i <= 300; i++) {
+                if (i <= 50 || i > 250) {
+                    expected.add(i);
+                }
+            }
+            System.out.println(remaining.equals(expected) ? "✓ PASSED: remaining records in order"
+                    : "✗ FAILED: remaining records " + remaining);
+
+            System.out.println(Catalog.getInstance().hasFreePages() ? "✓ PASSED: empty pages freed"
+                    : "✗ FAILED: no pages freed");
+
+            boolean gone = !store.primaryKeyExists("DeleteTable", 100);
+            boolean kept = store.primaryKeyExists("DeleteTable", 251) && store.selectByPrimaryKey("DeleteTable", 251) != null;
+            System.out.println(gone && kept ? "✓ PASSED: index follows deleted and moved records"
+                    : "✗ FAILED: index out of date");
+
+        } catch (Exception e) {
+            System.out.println("ERROR: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
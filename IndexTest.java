@@ -0,0 +1,63 @@
+import StorageManager.StorageManager;
+import Catalog.TableSchema;
+import AttributeInfo.Attribute;
+import AttributeInfo.IntegerDefinition;
+import Common.Page;
+import Common.Logger;
+import java.util.*;
+
+public class IndexTest {
+    public static void main(String[] args) {
+        Logger.initDebug(new String[]{});
+
+        try {
+            StorageManager.initDatabase("indexdb", 400, 10, true);
+            StorageManager store = StorageManager.getStorageManager();
+
+            System.out.println("\n=== Testing Primary Key Index ===\n");
+
+            List<Attribute> attrs = new ArrayList<>();
+            attrs.add(new Attribute("num", new IntegerDefinition(null, true, false), null));
+            attrs.add(new Attribute("doubled", new IntegerDefinition(null, false, false), null));
+
+            TableSchema table = new TableSchema("IndexTable", attrs);
+            store.CreateTable(table);
+            System.out.println(store.hasIndex("IndexTable") ? "✓ PASSED: index created" : "✗ FAILED: no index");
+
+            // insert out of order so pages split in the middle of the chain
+            List<Integer> keys = new ArrayList<>();
+            for (int i = 1; i <= 500; i++) {
+                keys.add(i);
+            }
+            Collections.shuffle(keys, new Random(421));
+            for (int key : keys) {
+                store.insertSingleRow("IndexTable", Arrays.asList(key, key * 2), -1);
+            }
+
+            int found = 0;
+            for (int i = 1; i <= 500; i++) {
+                Page page = store.selectByPrimaryKey("IndexTable", i);
+                if (page == null) {
+                    continue;
+                }
+                for (int r = 0; r < page.getNumRows(); r++) {
+                    if (page.getRecord(r).get(0).equals(i)) {
+                        found++;
+                        break;
+                    }
+                }
+            }
+            System.out.println(found == 500 ? "✓ PASSED: every key found through the index"
+                    : "✗ FAILED: found " + found + " of 500 keys");
+
+            boolean exists = store.primaryKeyExists("IndexTable", 250);
+            boolean missing = store.primaryKeyExists("IndexTable", 501);
+            System.out.println(exists && !missing ? "✓ PASSED: primary key checks"
+                    : "✗ FAILED: primary key checks");
+
+        } catch (Exception e) {
+            System.out.println("ERROR: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
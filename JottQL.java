@@ -4,6 +4,8 @@ import DMLParser.ParserDML;
 import StorageManager.StorageManager;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 
 /**
@@ -16,9 +18,11 @@ public class JottQL {
      * Initialize Database here
      */
     private static void startUp(String dbLocation, int pageSize, int bufferSize,
-                                        boolean indexing, boolean debug){
+                                        boolean indexing, boolean debug, String replacementPolicy,
+                                        boolean memoryMapped, int groupCommit){
         try {
-            StorageManager.initDatabase(dbLocation, pageSize, bufferSize);
+            StorageManager.initDatabase(dbLocation, pageSize, bufferSize, indexing, replacementPolicy, memoryMapped,
+                    groupCommit);
             StorageManager storageManager = StorageManager.getStorageManager();
             storageManager.bootup();
             if(debug){
@@ -37,7 +41,7 @@ public class JottQL {
     /**
      * Handle shutdown procedure here
      */
-    private static void shutdown() throws IOException {
+    static void shutdown() throws IOException {
         System.out.println("Shutting down the database...");
         StorageManager storageManager = StorageManager.getStorageManager();
         try {
@@ -49,6 +53,51 @@ public class JottQL {
         System.out.println("Database shutdown complete");
     }
 
+    /**
+     * Sends a command to the DDL or DML parser, errors are printed
+     * @param message the command, ending in a semicolon
+     * @param debug whether stack traces are printed
+     */
+    static void execute(String message, boolean debug) {
+        String[] keywords = message.split("\\s+");
+
+        if (keywords[0].equals("CREATE") ||
+                keywords[0].equals("ALTER") ||
+                keywords[0].equals("DROP")){
+            //DDL parser handles
+            Logger.log("Command Sent to DDL Parser");
+            ParserDDL.parseCommand(message);
+
+        } else if (keywords[0].equals("SELECT") || keywords[0].equals("INSERT") || keywords[0].equals("DELETE") || keywords[0].equals("UPDATE")) {
+            //DML parser handles
+            Logger.log(("Command Sent to DML Parser"));
+            try {
+                ParserDML.runCommand(message);
+            } catch (java.sql.SQLSyntaxErrorException e) {
+                System.out.println("Syntax Error: " + e.getMessage());
+            } catch (Exception e) {
+                System.out.println("Error executing DML command: " + e.getMessage());
+                if(debug) e.printStackTrace();
+            }
+        }
+        else{ //does not match any of our cases
+            System.out.println("Unrecognized command in following input:\n" + message);
+        }
+    }
+
+    /**
+     * Writes what the last command changed to the write ahead log
+     * @param debug whether stack traces are printed
+     */
+    static void commit(boolean debug) {
+        try {
+            StorageManager.getStorageManager().commit();
+        } catch (Exception e) {
+            System.out.println("Could not write to the write ahead log: " + e.getMessage());
+            if(debug) e.printStackTrace();
+        }
+    }
+
     /**
      * The main program and loop
      * @param args Command-line arguments in the following order:
@@ -57,11 +106,55 @@ public class JottQL {
      *             bufferSize: number of pages buffer can hold
      *             indexing: True/False: for indexing
      *             debug: True/False: enables Logging
+     *             Options can follow the arguments:
+     *             --policy=lru|clock|2q: buffer replacement policy, defaults to lru
+     *             --mmap: read pages from a memory mapping of the database file
+     *             --group-commit=n: statements that share one sync of the write ahead log
+     *             --server=port: serve clients on a localhost TCP port instead of reading standard input
      */
     public static void main(String[] args) {
+        String replacementPolicy = "lru";
+        boolean memoryMapped = false;
+        int groupCommit = StorageManager.DEFAULT_GROUP_COMMIT;
+        int serverPort = -1;
+        List<String> positional = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--mmap")) {
+                memoryMapped = true;
+            } else if (arg.startsWith("--policy=")) {
+                replacementPolicy = arg.substring("--policy=".length()).toLowerCase();
+            } else if (arg.startsWith("--group-commit=")) {
+                try {
+                    groupCommit = Integer.parseInt(arg.substring("--group-commit=".length()));
+                } catch (NumberFormatException e) {
+                    groupCommit = 0;
+                }
+                if (groupCommit < 1) {
+                    System.out.println("Invalid group commit size " + arg + ", expected a positive number");
+                    return;
+                }
+            } else if (arg.startsWith("--server=")) {
+                try {
+                    serverPort = Integer.parseInt(arg.substring("--server=".length()));
+                } catch (NumberFormatException e) {
+                    serverPort = -1;
+                }
+                if (serverPort < 0 || serverPort > 65535) {
+                    System.out.println("Invalid server port " + arg + ", expected a number from 0 to 65535");
+                    return;
+                }
+            } else {
+                positional.add(arg);
+            }
+        }
+        args = positional.toArray(new String[0]);
 
         if(args.length >5 || args.length < 4){
-            System.out.println("Usage: java jottQL <dblocation> <pageSize> <bufferSize> <indexing>");
+            System.out.println("Usage: java jottQL <dblocation> <pageSize> <bufferSize> <indexing> [debug] [--policy=lru|clock|2q] [--mmap] [--group-commit=n] [--server=port]");
+            return;
+        }
+        if (!replacementPolicy.equals("lru") && !replacementPolicy.equals("clock") && !replacementPolicy.equals("2q")) {
+            System.out.println("Unknown buffer replacement policy " + replacementPolicy + ", expected lru, clock or 2q");
             return;
         }
         System.out.println("Welcome to JottQL!");
@@ -76,7 +169,25 @@ public class JottQL {
                 debug = Boolean.parseBoolean(args[4]);
             }
 
-            startUp(dbLocation, pageSize, bufferSize, indexing, debug);
+            startUp(dbLocation, pageSize, bufferSize, indexing, debug, replacementPolicy, memoryMapped, groupCommit);
+            if (serverPort >= 0) {
+                try {
+                    JottQLServer server = new JottQLServer(serverPort, debug);
+                    // the server runs until the process is stopped, the database is shut down on the way out
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                        try {
+                            server.stop();
+                            shutdown();
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }));
+                    server.run();
+                } catch (IOException e) {
+                    System.out.println("Could not run the server: " + e.getMessage());
+                }
+                return;
+            }
             Scanner input = new Scanner(System.in);
 
             while (true) {
@@ -100,34 +211,13 @@ public class JottQL {
                     }
                 }
 
-                String[] keywords = message.split("\\s+");
-
                 if (message.equals(QUIT_MESSAGE)) {
                     shutdown();
                     return;
-
-                } else if (keywords[0].equals("CREATE") ||
-                        keywords[0].equals("ALTER") ||
-                        keywords[0].equals("DROP")){
-                    //DDL parser handles
-                    Logger.log("Command Sent to DDL Parser");
-                    ParserDDL.parseCommand(message);
-
-                } else if (keywords[0].equals("SELECT") || keywords[0].equals("INSERT") || keywords[0].equals("DELETE") || keywords[0].equals("UPDATE")) {
-                    //DML parser handles
-                    Logger.log(("Command Sent to DML Parser"));
-                    try {
-                        ParserDML.runCommand(message);
-                    } catch (java.sql.SQLSyntaxErrorException e) {
-                        System.out.println("Syntax Error: " + e.getMessage());
-                    } catch (Exception e) {
-                        System.out.println("Error executing DML command: " + e.getMessage());
-                        if(debug) e.printStackTrace();
-                    }
-                }
-                else{ //does not match any of our cases
-                    System.out.println("Unrecognized command in following input:\n" + message);
                 }
+                execute(message, debug);
+                // whatever the command changed goes to the write ahead log, even if it failed part way
+                commit(debug);
 
                 }
                 catch(Exception e){
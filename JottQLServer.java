@@ -0,0 +1,144 @@
+import Common.SessionOutput;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Serves the database to clients over TCP on localhost. Every connection is a session with its own thread that
+ * reads commands the same way the prompt does and gets back what the prompt would print, <QUIT> ends the session.
+ * SELECTs of different sessions run at the same time and share the buffer, every other command waits until no
+ * statement is running and runs alone, then commits to the write ahead log before the next statement starts.
+ */
+public class JottQLServer {
+    private final ServerSocket serverSocket;
+    private final boolean debug;
+    private final ExecutorService sessions;
+    private final Set<Socket> clients;
+    // SELECTs hold the read lock, every other statement holds the write lock
+    private final ReentrantReadWriteLock statementLock;
+
+    /**
+     * Opens the server socket
+     * @param port the port to listen on, 0 picks a free port
+     * @param debug whether stack traces are printed to the client
+     */
+    public JottQLServer(int port, boolean debug) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.debug = debug;
+        // every session runs on its own virtual thread, a session blocked on its socket holds no platform thread
+        this.sessions = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("session-", 1).factory());
+        this.clients = ConcurrentHashMap.newKeySet();
+        this.statementLock = new ReentrantReadWriteLock(true);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts clients until the server is stopped. Output printed by a session goes to its client from here on
+     */
+    public void run() throws IOException {
+        if (!(System.out instanceof SessionPrintStream)) {
+            System.setOut(new SessionPrintStream(new SessionOutput(System.out)));
+        }
+        System.out.println("Listening on localhost:" + getPort());
+        while (!serverSocket.isClosed()) {
+            Socket client;
+            try {
+                client = serverSocket.accept();
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) {
+                    break;
+                }
+                throw e;
+            }
+            clients.add(client);
+            sessions.submit(() -> session(client));
+        }
+    }
+
+    /**
+     * Stops accepting clients, disconnects the ones still connected and waits for running statements to finish.
+     * No statement runs after this returns so the database can be shut down
+     */
+    public void stop() throws IOException {
+        serverSocket.close();
+        for (Socket client : clients) {
+            client.close();
+        }
+        sessions.shutdown();
+        statementLock.writeLock().lock();
+    }
+
+    private void session(Socket client) {
+        try (client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(),
+                     StandardCharsets.UTF_8));
+             BufferedOutputStream out = new BufferedOutputStream(client.getOutputStream())) {
+            SessionOutput.setSession(out);
+            String message = "";
+            System.out.print("JottQL> ");
+            System.out.flush();
+            String line;
+            while ((line = in.readLine()) != null) {
+                message += line;
+                if (message.equals(JottQL.QUIT_MESSAGE)) {
+                    break;
+                }
+                message += " ";
+                if (message.contains(";")) {
+                    //trim message to end in semicolon
+                    runStatement(message.substring(0, message.indexOf(";") + 1));
+                    message = "";
+                    System.out.print("JottQL> ");
+                    System.out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // the client went away
+        } finally {
+            SessionOutput.setSession(null);
+            clients.remove(client);
+        }
+    }
+
+    private void runStatement(String message) {
+        boolean readOnly = message.split("\\s+")[0].equals("SELECT");
+        Lock lock = readOnly ? statementLock.readLock() : statementLock.writeLock();
+        lock.lock();
+        try {
+            JottQL.execute(message, debug);
+            // a SELECT only changes temp tables it drops again, the next statement that commits logs what is left
+            if (!readOnly) {
+                JottQL.commit(debug);
+            }
+        } catch (Exception e) {
+            if (debug) e.printStackTrace();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The System.out of the server, not flushed on every line so large results go to the client in few writes
+     */
+    private static class SessionPrintStream extends PrintStream {
+        SessionPrintStream(SessionOutput out) {
+            super(out, false, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+import Catalog.Catalog;
+import StorageManager.PageFile;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+/**
+ * Compares the ways of reading pages from a database file. Every pass reads every page of the file and sums the
+ * ints stored in it.
+ * RandomAccessFile reads field by field like readPage used to, FileChannel reads each page with one call and
+ * mmap reads from a memory mapping of the file.
+ * Usage: java PageReadBenchmark [pageSize] [numPages] [passes]
+ */
+public class PageReadBenchmark {
+    public static void main(String[] args) throws Exception {
+        int pageSize = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int numPages = args.length > 1 ? Integer.parseInt(args[1]) : 2048;
+        int passes = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        String dbPath = "benchmarkdb";
+        Catalog.init(dbPath, pageSize);
+        String file = dbPath + File.separator + "database.bin";
+        new File(file).delete();
+
+        System.out.println("\n=== Page Read Benchmark ===");
+        System.out.println(numPages + " pages of " + pageSize + " bytes, " + passes + " passes\n");
+
+        PageFile writer = new PageFile(file);
+        for (int p = 0; p < numPages; p++) {
+            ByteBuffer page = writer.allocate();
+            while (page.hasRemaining()) {
+                page.putInt(p);
+            }
+            writer.write(p * pageSize, page);
+        }
+        writer.close();
+
+        long expected = 0;
+        for (int p = 0; p < numPages; p++) {
+            expected += (long) p * (pageSize / Integer.BYTES);
+        }
+
+        long start = System.nanoTime();
+        long sum = 0;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            for (int pass = 0; pass < passes; pass++) {
+                sum = 0;
+                for (int p = 0; p < numPages; p++) {
+                    raf.seek((long) p * pageSize);
+                    for (int i = 0; i < pageSize / Integer.BYTES; i++) {
+                        sum += raf.readInt();
+                    }
+                }
+            }
+        }
+        report("RandomAccessFile", start, sum == expected);
+
+        for (boolean mapped : new boolean[]{false, true}) {
+            PageFile pageFile = new PageFile(file, mapped);
+            start = System.nanoTime();
+            for (int pass = 0; pass < passes; pass++) {
+                sum = 0;
+                for (int p = 0; p < numPages; p++) {
+                    ByteBuffer page = pageFile.read(p * pageSize);
+                    for (int i = 0; i < pageSize; i += Integer.BYTES) {
+                        sum += page.getInt(i);
+                    }
+                }
+            }
+            pageFile.close();
+            report(mapped ? "mmap" : "FileChannel", start, sum == expected);
+        }
+    }
+
+    private static void report(String name, long start, boolean correct) {
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println(String.format("%-17s %6d ms %s", name, millis, correct ? "✓" : "✗ WRONG SUM"));
+    }
+}
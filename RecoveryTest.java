@@ -0,0 +1,103 @@
+import StorageManager.StorageManager;
+import Common.Page;
+import Common.Logger;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+public class RecoveryTest {
+    public static void main(String[] args) {
+        Logger.initDebug(new String[]{});
+
+        try {
+            File dir = new File("recoverydb");
+            File[] old = dir.listFiles();
+            if (old != null) {
+                for (File file : old) {
+                    file.delete();
+                }
+            }
+
+            System.out.println("\n=== Testing Crash Recovery ===\n");
+
+            // a buffer of 4 pages evicts changed pages while the statements run
+            Process child = new ProcessBuilder("java", "-cp", System.getProperty("java.class.path"),
+                    "JottQL", "recoverydb", "512", "4", "true").redirectErrorStream(true).start();
+            Writer in = new OutputStreamWriter(child.getOutputStream(), StandardCharsets.UTF_8);
+            in.write("CREATE TABLE c (id INTEGER PRIMARYKEY, s VARCHAR(20));\n");
+            StringBuilder insert = new StringBuilder("INSERT c VALUES (");
+            for (int i = 0; i < 300; i++) {
+                insert.append(i == 0 ? "" : ", ").append(i).append(" \"row").append(i).append("\"");
+            }
+            in.write(insert.append(");\n").toString());
+            in.write("DELETE FROM c WHERE id < 10;\n");
+            in.write("UPDATE c SET s = \"changed\" WHERE id = 50;\n");
+            in.write("SELECT * FROM c WHERE id = 50;\n");
+            in.flush();
+
+            // statements commit after they print, the update is committed once the select after it prints the row.
+            // The process is then killed without <QUIT>
+            BufferedReader out = new BufferedReader(new InputStreamReader(child.getInputStream(), StandardCharsets.UTF_8));
+            boolean done = false;
+            String line;
+            while (!done && (line = out.readLine()) != null) {
+                done = line.contains("changed");
+            }
+            child.destroyForcibly();
+            child.waitFor(1, TimeUnit.MINUTES);
+            System.out.println(done ? "✓ PASSED: statements ran before the crash"
+                    : "✗ FAILED: statements did not finish before the crash");
+            System.out.println(new File(dir, "wal.log").length() > 0 ? "✓ PASSED: write ahead log left behind"
+                    : "✗ FAILED: write ahead log is empty");
+
+            ByteArrayOutputStream console = new ByteArrayOutputStream();
+            PrintStream stdout = System.out;
+            System.setOut(new PrintStream(console, true));
+            try {
+                StorageManager.initDatabase("recoverydb", 512, 4, true);
+                StorageManager.getStorageManager().bootup();
+            } finally {
+                System.setOut(stdout);
+            }
+            StorageManager store = StorageManager.getStorageManager();
+            System.out.println(console.toString().contains("Recovered 4 statement(s)")
+                    ? "✓ PASSED: committed statements replayed" : "✗ FAILED: " + console);
+
+            List<Integer> ids = new ArrayList<>();
+            Object updated = null;
+            Page page = store.selectFirstPage("c");
+            while (true) {
+                for (int r = 0; r < page.getNumRows(); r++) {
+                    List<Object> record = page.getRecord(r);
+                    ids.add((Integer) record.get(0));
+                    if ((Integer) record.get(0) == 50) {
+                        updated = record.get(1);
+                    }
+                }
+                if (page.getNextPage() == -1) {
+                    break;
+                }
+                page = store.select(page.getNextPage(), "c");
+            }
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 10; i < 300; i++) {
+                expected.add(i);
+            }
+            System.out.println(ids.equals(expected) ? "✓ PASSED: inserts and delete recovered"
+                    : "✗ FAILED: recovered records " + ids);
+
+            System.out.println("changed".equals(updated) ? "✓ PASSED: update recovered"
+                    : "✗ FAILED: record 50 is " + updated);
+
+            boolean indexed = store.selectByPrimaryKey("c", 299) != null && !store.primaryKeyExists("c", 5);
+            System.out.println(indexed ? "✓ PASSED: index matches the recovered table"
+                    : "✗ FAILED: index out of date after recovery");
+
+            store.shutdown();
+        } catch (Exception e) {
+            System.out.println("ERROR: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
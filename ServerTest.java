@@ -0,0 +1,91 @@
+import StorageManager.StorageManager;
+import Common.Logger;
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class ServerTest {
+    public static void main(String[] args) {
+        Logger.initDebug(new String[]{});
+
+        try {
+            StorageManager.initDatabase("serverdb", 512, 8, true);
+            StorageManager.getStorageManager().bootup();
+            JottQLServer server = new JottQLServer(0, false);
+            Thread acceptor = new Thread(() -> {
+                try {
+                    server.run();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+            acceptor.start();
+            int port = server.getPort();
+
+            System.out.println("\n=== Testing Server Sessions ===\n");
+
+            StringBuilder insert = new StringBuilder("INSERT t VALUES (");
+            for (int i = 1; i <= 1000; i++) {
+                insert.append(i == 1 ? "" : ", ").append(i).append(" \"r").append(i).append("\"");
+            }
+            insert.append(");");
+            String created = session(port, "CREATE TABLE t (id INTEGER PRIMARYKEY, v VARCHAR(10));", insert.toString());
+            System.out.println(created.contains("Successfully inserted 1000 row(s) into t")
+                    ? "✓ PASSED: session output goes to its client" : "✗ FAILED: " + created);
+
+            // readers scan while a writer adds rows, each reader sees whole statements
+            ExecutorService clients = Executors.newFixedThreadPool(9);
+            List<Future<String>> readers = new ArrayList<>();
+            for (int c = 0; c < 8; c++) {
+                readers.add(clients.submit(() -> session(port, "SELECT * FROM t WHERE id <= 1000 ORDERBY v;")));
+            }
+            Future<String> writer = clients.submit(() -> {
+                List<String> inserts = new ArrayList<>();
+                for (int i = 1001; i <= 1050; i++) {
+                    inserts.add("INSERT t VALUES (" + i + " \"w\");");
+                }
+                return session(port, inserts.toArray(new String[0]));
+            });
+            String expected = readers.get(0).get(2, TimeUnit.MINUTES);
+            boolean same = expected.contains("| 1000 | r1000 |");
+            for (Future<String> reader : readers) {
+                same &= reader.get(2, TimeUnit.MINUTES).equals(expected);
+            }
+            System.out.println(same ? "✓ PASSED: concurrent SELECTs return the same rows"
+                    : "✗ FAILED: concurrent SELECTs differ");
+            String written = writer.get(2, TimeUnit.MINUTES);
+            int inserted = written.split("Successfully inserted", -1).length - 1;
+            System.out.println(inserted == 50 ? "✓ PASSED: writer ran between readers"
+                    : "✗ FAILED: writer inserted " + inserted + " rows");
+            clients.shutdown();
+
+            String count = session(port, "SELECT * FROM t WHERE id > 1049;");
+            System.out.println(count.contains("| 1050 |") ? "✓ PASSED: writes seen by a new session"
+                    : "✗ FAILED: " + count);
+
+            server.stop();
+            acceptor.join();
+            StorageManager.getStorageManager().shutdown();
+        } catch (Exception e) {
+            System.out.println("ERROR: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Runs commands in a new session and returns everything the server sent back
+     */
+    private static String session(int port, String... commands) throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            for (String command : commands) {
+                out.write(command + "\n");
+            }
+            out.write("<QUIT>\n");
+            out.flush();
+            return new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package StorageManager;
+
+import AttributeInfo.AttributeDefinition;
+import Catalog.Catalog;
+import Catalog.TableSchema;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Disk resident B+ tree over the primary key of a table. Every key maps to the address of the data page that holds
+ * the record with that key, so lookups and insert placement only need O(log n) page reads.
+ * The root address is kept in the TableSchema so it is saved with the catalog. Deletes are lazy, keys are removed
+ * from their leaf but nodes are never merged.
+ */
+public class BPlusTree {
+    // header is isLeaf, numKeys and nextLeaf, plus the extra pointer of an internal node
+    private static final int NODE_HEADER_SIZE = Integer.BYTES * 4;
+
+    private final TableSchema table;
+    private final AttributeDefinition keyDefinition;
+    private final int maxKeys;
+
+    public BPlusTree(TableSchema table) {
+        this.table = table;
+        this.keyDefinition = table.getAttributes().get(table.getPrimaryKeyIndex()).getDefinition();
+        this.maxKeys = getMaxKeys(keyDefinition);
+    }
+
+    /**
+     * Calculates how many keys fit in one node. Strings are sized for the worst case UTF-8 encoding so a node
+     * can never spill past its page.
+     * @param keyDefinition the definition of the primary key
+     * @return the max number of keys in a node
+     */
+    public static int getMaxKeys(AttributeDefinition keyDefinition) {
+        int pageSize = Catalog.getInstance().getPageSize();
+        return (pageSize - NODE_HEADER_SIZE) / (getMaxKeySize(keyDefinition) + Integer.BYTES) - 1;
+    }
+
+    public static int getMaxKeySize(AttributeDefinition keyDefinition) {
+        switch (keyDefinition.getType()) {
+            case CHAR:
+            case VARCHAR:
+                return Integer.BYTES + keyDefinition.getMaxLength() * 3;
+            default:
+                return keyDefinition.getByteSize();
+        }
+    }
+
+    /**
+     * Checks if a table can be indexed, it needs a primary key and at least 3 keys must fit in a node
+     */
+    public static boolean canIndex(TableSchema table) {
+        Integer pkIndex = table.getPrimaryKeyIndex();
+        if (pkIndex == null) {
+            return false;
+        }
+        return getMaxKeys(table.getAttributes().get(pkIndex).getDefinition()) >= 3;
+    }
+
+    public AttributeDefinition getKeyDefinition() {
+        return keyDefinition;
+    }
+
+    /**
+     * Creates an empty tree for the table, the root starts out as an empty leaf
+     */
+    public void create() throws IOException {
+        BufferManager bufferManager = BufferManager.getInstance();
+        BPlusTreeNode root = bufferManager.newIndexNode(true);
+        table.setIndexRootPageID(root.getAddress());
+    }
+
+    private BPlusTreeNode readNode(int address) throws IOException {
+        return BufferManager.getInstance().readIndexNode(address, keyDefinition);
+    }
+
+    /**
+     * Marks a node as changed, puts it back in the buffer in case it was evicted while we were still using it
+     */
+    private void nodeChanged(BPlusTreeNode node) throws IOException {
+        node.SetModified(true);
+        BufferManager.getInstance().touchIndexNode(node);
+    }
+
+    private BPlusTreeNode findLeaf(Object key) throws IOException {
+        BPlusTreeNode node = readNode(table.getIndexRootPageID());
+        while (!node.isLeaf()) {
+            node = readNode(node.getPointers().get(node.findChild(key)));
+        }
+        return node;
+    }
+
+    /**
+     * Finds the page holding a key
+     * @param key the primary key value
+     * @return the address of the data page, or null if the key is not in the table
+     */
+    public Integer search(Object key) throws IOException {
+        BPlusTreeNode leaf = findLeaf(key);
+        int pos = leaf.findKey(key);
+        if (pos < 0) {
+            return null;
+        }
+        return leaf.getPointers().get(pos);
+    }
+
+    /**
+     * Inserts a key into the tree, if the key already exists its page address is updated
+     * @param key the primary key value
+     * @param pageAddress the address of the page holding the record
+     */
+    public void insert(Object key, int pageAddress) throws IOException {
+        BPlusTreeNode root = readNode(table.getIndexRootPageID());
+        Object[] split = insert(root, key, pageAddress);
+        if (split != null) {
+            BPlusTreeNode newRoot = BufferManager.getInstance().newIndexNode(false);
+            newRoot.getKeys().add(split[0]);
+            newRoot.getPointers().add(root.getAddress());
+            newRoot.getPointers().add((Integer) split[1]);
+            nodeChanged(newRoot);
+            table.setIndexRootPageID(newRoot.getAddress());
+        }
+    }
+
+    /**
+     * Recursive insert
+     * @return null if the node did not split, otherwise the separator key and the address of the new right node
+     */
+    private Object[] insert(BPlusTreeNode node, Object key, int pageAddress) throws IOException {
+        BufferManager bufferManager = BufferManager.getInstance();
+        if (node.isLeaf()) {
+            int pos = node.findKey(key);
+            if (pos >= 0) {
+                node.getPointers().set(pos, pageAddress);
+                nodeChanged(node);
+                return null;
+            }
+            pos = -(pos + 1);
+            node.getKeys().add(pos, key);
+            node.getPointers().add(pos, pageAddress);
+            nodeChanged(node);
+            if (node.getNumKeys() <= maxKeys) {
+                return null;
+            }
+            // split the leaf, the first key of the right leaf is copied up
+            int mid = node.getNumKeys() / 2;
+            BPlusTreeNode right = bufferManager.newIndexNode(true);
+            moveTail(node, right, mid, mid);
+            right.setNextLeaf(node.getNextLeaf());
+            node.setNextLeaf(right.getAddress());
+            nodeChanged(node);
+            nodeChanged(right);
+            return new Object[]{right.getKeys().get(0), right.getAddress()};
+        }
+
+        int childIndex = node.findChild(key);
+        BPlusTreeNode child = readNode(node.getPointers().get(childIndex));
+        Object[] split = insert(child, key, pageAddress);
+        if (split == null) {
+            return null;
+        }
+        node.getKeys().add(childIndex, split[0]);
+        node.getPointers().add(childIndex + 1, (Integer) split[1]);
+        nodeChanged(node);
+        if (node.getNumKeys() <= maxKeys) {
+            return null;
+        }
+        // split the internal node, the middle key moves up
+        int mid = node.getNumKeys() / 2;
+        Object promoted = node.getKeys().get(mid);
+        BPlusTreeNode right = bufferManager.newIndexNode(false);
+        moveTail(node, right, mid + 1, mid + 1);
+        node.getKeys().remove(mid);
+        nodeChanged(node);
+        nodeChanged(right);
+        return new Object[]{promoted, right.getAddress()};
+    }
+
+    private void moveTail(BPlusTreeNode from, BPlusTreeNode to, int keyStart, int pointerStart) {
+        List<Object> keyTail = from.getKeys().subList(keyStart, from.getNumKeys());
+        List<Integer> pointerTail = from.getPointers().subList(pointerStart, from.getPointers().size());
+        to.getKeys().addAll(keyTail);
+        to.getPointers().addAll(pointerTail);
+        keyTail.clear();
+        pointerTail.clear();
+    }
+
+    /**
+     * Removes a key from the tree
+     * @param key the primary key value
+     * @return true if the key was found
+     */
+    public boolean delete(Object key) throws IOException {
+        BPlusTreeNode leaf = findLeaf(key);
+        int pos = leaf.findKey(key);
+        if (pos < 0) {
+            return false;
+        }
+        leaf.getKeys().remove(pos);
+        leaf.getPointers().remove(pos);
+        nodeChanged(leaf);
+        return true;
+    }
+
+    /**
+     * Frees every node of the tree
+     */
+    public void drop() throws IOException {
+        BufferManager bufferManager = BufferManager.getInstance();
+        LinkedList<Integer> toVisit = new LinkedList<>();
+        toVisit.add(table.getIndexRootPageID());
+        List<Integer> addresses = new ArrayList<>();
+        while (!toVisit.isEmpty()) {
+            int address = toVisit.removeFirst();
+            BPlusTreeNode node = readNode(address);
+            if (!node.isLeaf()) {
+                toVisit.addAll(node.getPointers());
+            }
+            addresses.add(address);
+        }
+        for (int address : addresses) {
+            bufferManager.freeIndexNode(address);
+        }
+        table.setIndexRootPageID(-1);
+    }
+}
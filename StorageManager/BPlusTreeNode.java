@@ -0,0 +1,85 @@
+package StorageManager;
+
+import java.util.ArrayList;
+
+/**
+ * A single node of a primary key B+ tree. Nodes are stored in database.bin pages just like data pages and are
+ * cached by the BufferManager.
+ * Leaf nodes hold one pointer per key (the address of the data page holding that key) and a link to the next leaf.
+ * Internal nodes hold one more pointer than keys, pointer i leads to the keys smaller than key i.
+ */
+public class BPlusTreeNode {
+    private final int address;
+    private final boolean leaf;
+    private final ArrayList<Object> keys;
+    private final ArrayList<Integer> pointers;
+    private int nextLeaf;
+    private boolean modified;
+    // whether the current contents are in the write ahead log
+    private boolean logged;
+
+    public BPlusTreeNode(int address, boolean leaf, int nextLeaf, boolean modified) {
+        this.address = address;
+        this.leaf = leaf;
+        // nextLeaf of -1 means no next leaf, always -1 for internal nodes
+        this.nextLeaf = nextLeaf;
+        this.keys = new ArrayList<>();
+        this.pointers = new ArrayList<>();
+        this.modified = modified;
+    }
+
+    public int getAddress() { return address; }
+    public boolean isLeaf() { return leaf; }
+    public ArrayList<Object> getKeys() { return keys; }
+    public ArrayList<Integer> getPointers() { return pointers; }
+    public int getNumKeys() { return keys.size(); }
+    public int getNextLeaf() { return nextLeaf; }
+    public void setNextLeaf(int nextLeaf) { this.nextLeaf = nextLeaf; }
+    public boolean getModified() { return modified; }
+    public void SetModified(boolean modified) {
+        this.modified = modified;
+        if (modified) {
+            this.logged = false;
+        }
+    }
+    public boolean isLogged() { return logged; }
+    public void setLogged(boolean logged) { this.logged = logged; }
+
+    /**
+     * Binary searches the keys of this node
+     * @param key the key to look for
+     * @return the index of the key if found, otherwise (-(insertion point) - 1) like Collections.binarySearch
+     */
+    public int findKey(Object key) {
+        int low = 0;
+        int high = keys.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareKeys(keys.get(mid), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Finds which child of an internal node a key belongs in
+     * @param key the key being searched for
+     * @return the index of the pointer to follow
+     */
+    public int findChild(Object key) {
+        int pos = findKey(key);
+        // keys equal to a separator live in the right subtree
+        return pos >= 0 ? pos + 1 : -(pos + 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static int compareKeys(Object k1, Object k2) {
+        return ((Comparable<Object>) k1).compareTo(k2);
+    }
+}
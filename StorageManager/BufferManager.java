@@ -2,27 +2,76 @@ package StorageManager;
 
 import AttributeInfo.*;
 import Common.Page;
+import Common.PageBatch;
+import Common.Where.ICompiledWhere;
+import Catalog.FenceKeys;
+import Catalog.FreeSpaceMap;
+import Catalog.ZoneMaps;
 import Catalog.TableSchema;
 
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import Catalog.Catalog;
 
 import static AttributeInfo.AttributeTypeEnum.VARCHAR;
 
+/**
+ * The buffer pool. Pages and index nodes are looked up without locking, a page that is not buffered is read while
+ * holding the latch of its stripe so two threads missing on the same page read it once. The replacement policy and
+ * every change to which frames are buffered are guarded by the frames lock. Pages that are pinned, or latched for
+ * writing by another thread, are skipped when a victim is evicted.
+ */
 public class BufferManager {
+    // number of latches that page loads are spread over
+    private static final int LOAD_STRIPES = 16;
+    // written in catalog.bin where older catalogs have the number of free pages, which is never negative
+    private static final int FREE_SPACE_BITMAP = -1;
+
     private final Map<Integer, Page> bufferPages;
-    private static BufferManager bufferManager;
+    // B+ tree nodes share the buffer with data pages, both count towards bufferSize
+    private final Map<Integer, BPlusTreeNode> indexPages;
+    private final ReentrantLock[] loadLatches;
+    private final Object frames = new Object();
+    private static volatile BufferManager bufferManager;
     private int bufferSize;
     private final String dbLocation;
+    private final PageFile pageFile;
+    // pages of a table being scanned are read ahead of the scan on a background thread
+    private final ReadAhead readAhead;
+    private final boolean indexing;
+    private final ReplacementPolicy replacementPolicy;
+    // number of data pages read from disk, buffer hits are not counted
+    private final AtomicLong pagesRead = new AtomicLong();
+    // changed pages are logged here, and the log forced, before they leave the buffer, null when there is no log
+    private WriteAheadLog writeAheadLog;
 
     public static void init(int bufferSize, String dbLocation) {
+        init(bufferSize, dbLocation, false);
+    }
+
+    public static void init(int bufferSize, String dbLocation, boolean indexing) {
+        init(bufferSize, dbLocation, indexing, new LRUReplacementPolicy());
+    }
+
+    public static void init(int bufferSize, String dbLocation, boolean indexing, ReplacementPolicy replacementPolicy) {
+        init(bufferSize, dbLocation, indexing, replacementPolicy, false);
+    }
+
+    /**
+     * @param memoryMapped whether pages are read from a memory mapping of the database file
+     */
+    public static synchronized void init(int bufferSize, String dbLocation, boolean indexing,
+                                         ReplacementPolicy replacementPolicy, boolean memoryMapped) {
         if (bufferManager == null) {
-            bufferManager = new BufferManager(bufferSize, dbLocation);
+            bufferManager = new BufferManager(bufferSize, dbLocation, indexing, replacementPolicy, memoryMapped);
         }
     }
 
@@ -33,16 +82,76 @@ public class BufferManager {
         return bufferManager;
     }
 
-    private BufferManager(int bufferSize, String dbLocation) {
-        this.bufferPages  = new HashMap<>();
+    private BufferManager(int bufferSize, String dbLocation, boolean indexing, ReplacementPolicy replacementPolicy,
+                          boolean memoryMapped) {
+        this.bufferPages  = new ConcurrentHashMap<>();
+        this.indexPages = new ConcurrentHashMap<>();
+        this.loadLatches = new ReentrantLock[LOAD_STRIPES];
+        for (int i = 0; i < LOAD_STRIPES; i++) {
+            loadLatches[i] = new ReentrantLock();
+        }
         this.bufferSize = bufferSize;
         this.dbLocation = dbLocation;
+        this.pageFile = new PageFile(dbLocation, memoryMapped);
+        this.readAhead = new ReadAhead(pageFile);
+        this.indexing = indexing;
+        this.replacementPolicy = replacementPolicy;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return the number of data pages read from disk since the database started
+     */
+    public long getPagesRead() {
+        return pagesRead.get();
+    }
+
+    public void setWriteAheadLog(WriteAheadLog writeAheadLog) {
+        this.writeAheadLog = writeAheadLog;
+    }
+
+    public boolean isIndexing() {
+        return indexing;
+    }
+
+    /**
+     * Number of frames in use by data pages and index nodes
+     */
+    private int bufferedCount() {
+        return this.bufferPages.size() + this.indexPages.size();
+    }
+
+    /**
+     * Takes a single page address from the free space map
+     * @return the address of an unused page
+     */
+    private int allocatePageAddress() {
+        return Catalog.getInstance().getFreeSpaceMap().allocate();
+    }
+
+    /**
+     * Takes the address for the next page of a growing table from the free space map, the page is taken from the
+     * extent kept for the table when it has one so the pages of the table stay together
+     * @param tableName the table the page is for
+     * @return the address of an unused page
+     */
+    private int allocatePageAddress(String tableName) {
+        return Catalog.getInstance().getFreeSpaceMap().allocate(tableName.toLowerCase());
+    }
+
+    /**
+     * Gives the address of the first page of a new table
+     */
+    public int allocateFirstPage() {
+        return allocatePageAddress();
     }
 
     public void newPage(int Address, String tableName) throws IOException {
         Catalog catalog = Catalog.getInstance();
         Page newPage = new Page(0, Address, -1, Address+(Integer.BYTES*4), Address+catalog.getPageSize(), true, tableName);
-        catalog.setFirstFreeAddress(catalog.getFirstFreeAddress()+catalog.getPageSize());
         //adds new page to bufferpages
         addPageToBuffer(newPage);
         newPage.SetModified(true);
@@ -50,29 +159,36 @@ public class BufferManager {
 
     public void dropTable(String tableName) throws Exception {
         Catalog catalog = Catalog.getInstance();
-        int pageAddress = catalog.getAddressOfPage(tableName);
-        //set all fields to blank and set modified to true
-        Page page = this.bufferPages.get(pageAddress);
-        if (page == null) {
-            if (this.bufferPages.size()+1 > this.bufferSize) {
-                removeLRUPage();
-            }
-            page = readPage(pageAddress, tableName);
+        BPlusTree index = getIndex(tableName);
+        if (index != null) {
+            index.drop();
         }
-        page.setTableName(null);
-        page.SetModified(true);
-        //while there is a next page set it's tableName to null signifying empty
-        while (page.getNextPage() != -1) {
-            pageAddress = page.getNextPage();
-            page = this.bufferPages.get(pageAddress);
+        int pageAddress = catalog.getAddressOfPage(tableName);
+        //every page of the table goes back to the free space map, the pages are not written again
+        while (pageAddress != -1) {
+            Page page = this.bufferPages.get(pageAddress);
             if (page == null) {
-                if (this.bufferPages.size()+1 > this.bufferSize) {
+                if (bufferedCount()+1 > this.bufferSize) {
                     removeLRUPage();
                 }
-                page = readPage(pageAddress, tableName);
+                page = readPage(pageAddress, tableName, false);
+            }
+            int nextAddress = page.getNextPage();
+            freePage(pageAddress);
+            pageAddress = nextAddress;
+        }
+    }
+
+    /**
+     * Gives the pages of a table that are in the buffer a new table name without reading or writing any pages
+     * @param oldTableName the name the pages have
+     * @param newTableName the name they get
+     */
+    public void renameBufferedPages(String oldTableName, String newTableName) {
+        for (Page page : this.bufferPages.values()) {
+            if (oldTableName.equalsIgnoreCase(page.getTableName())) {
+                page.setTableName(newTableName);
             }
-            page.setTableName(null);
-            page.SetModified(true);
         }
     }
 
@@ -83,12 +199,36 @@ public class BufferManager {
      * @return a page corresponding to the table and address
      */
     public Page select(int address, String tableName) throws Exception {
+        return select(address, tableName, false);
+    }
+
+    /**
+     * Gets a page like select and pins it, the page stays in the buffer until it is unpinned. A page is pinned once
+     * per call and must be unpinned as many times
+     * @param address The address of the page
+     * @param tableName The name of the table
+     * @return the pinned page
+     */
+    public Page pin(int address, String tableName) throws Exception {
+        return select(address, tableName, true);
+    }
+
+    /**
+     * Releases a page pinned with pin
+     * @param page the page
+     */
+    public void unpin(Page page) {
+        page.unpin();
+    }
+
+    private Page select(int address, String tableName, boolean pin) throws Exception {
         Catalog catalog = Catalog.getInstance();
         if(!catalog.tableExists(tableName)){
             throw new Exception("Table " + tableName + " does not exist");
         }
-        Page page = readPage(address, tableName);
-        page.updateLastUsed();
+        Page page = readPage(address, tableName, pin);
+        recordAccess(address);
+        readAhead.pageSelected(address, page.getNextPage(), bufferPages.containsKey(page.getNextPage()));
         return page;
     }
 
@@ -119,6 +259,9 @@ public class BufferManager {
         }
 
         Integer pkIndex = pkIndices.get(0);
+        BPlusTree index = getIndex(tableName);
+        FenceKeys fences = fenceKeys(table);
+        ZoneMaps zones = catalog.getZoneMaps(tableName);
 
         for (List<Object> row : rows) {
             // Convert List<Object> to ArrayList<Object>
@@ -132,6 +275,10 @@ public class BufferManager {
             Object primaryKey = record.get(pkIndex);
             boolean inserted = false;
 
+            // The fence keys give the page holding the closest smaller key without walking the chain
+            Integer floorPage = fences.findPage(primaryKey);
+            currentPage = select(floorPage != null ? floorPage : table.getRootPageID(), tableName);
+
             // Find the place where the record should go
             do {
                 int availableSpace = currentPage.getFreeSpaceEnd() - currentPage.getFreeSpaceStart();
@@ -143,57 +290,35 @@ public class BufferManager {
                     currentPage.addRecord(record);
                     inserted = true;
                     currentPage.setNumRows(currentPage.getNumRows() + 1);
+                    setFences(fences, currentPage, pkIndex);
+                    addToZone(zones, currentPage, record);
+                    indexRecord(index, primaryKey, currentPage);
                     break;
                 }
-                for (int pageRow = 0; pageRow < currentPage.getNumRows(); pageRow++) {
-                    int pKeyCompare = comparePrimaryKey(primaryKey, currentPage.getRecord(pageRow).get(pkIndex));
+                int pageRow = findSlot(currentPage, primaryKey, pkIndex);
+                int insertionIndex;
+                if (pageRow < currentPage.getNumRows()) {
                     // Both primary keys are equal should not be possible if primary keys are being enforced
-                    if (pKeyCompare == 0) {
-                        if(availableSpace < totalRecordSize){
-                            currentPage = splitPage(currentPage, record, pageRow+1, catalog);
-                        } else {
-                            currentPage.addRecord(record, pageRow+1);
-                            currentPage.setNumRows(currentPage.getNumRows() + 1);
-                        }
-                        inserted = true;
-                        break;
-                        //primaryKey of record to be inserted < primary key of current record in the page
-                    } else if (pKeyCompare < 0) {
-                        if(availableSpace < totalRecordSize){
-                            currentPage = splitPage(currentPage, record, pageRow, catalog);
-                        } else {
-                            currentPage.addRecord(record, pageRow);
-                            currentPage.setNumRows(currentPage.getNumRows() + 1);
-                        }
-                        inserted = true;
-
-                        break;
-
-                        // primaryKey or record to be inserted > primary key of current record in the page
-                    } else if (pageRow == currentPage.getNumRows() - 1) {
-                        // if the page has already split, and this is the last element in the page the record belongs in the next page
-                        if (currentPage.getNextPage() != -1) {
-                            currentPage = select(currentPage.getNextPage(), tableName);
-                            break;
-                        } else {
-                            //Split the page and insert or just insert directly if no split is necessary
-                            if(availableSpace < totalRecordSize){
-                                currentPage = splitPage(currentPage, record, -1, catalog);
-                            } else {
-                                currentPage.addRecord(record, -1);
-                                currentPage.setNumRows(currentPage.getNumRows() + 1);
-                            }
-                            inserted = true;
-
-                            break;
-                        }
-                    } else if (pageRow != currentPage.getNumRows() - 1) {
-
-
-
-                    }
+                    insertionIndex = comparePrimaryKey(primaryKey, currentPage.getValue(pageRow, pkIndex)) == 0
+                            ? pageRow + 1 : pageRow;
+                } else if (availableSpace < totalRecordSize && currentPage.getNextPage() != -1) {
+                    // the record goes after the last one in a full page, the start of the next page works as well
+                    currentPage = select(currentPage.getNextPage(), tableName);
+                    continue;
+                } else {
+                    insertionIndex = -1;
                 }
-
+                //Split the page and insert or just insert directly if no split is necessary
+                if(availableSpace < totalRecordSize){
+                    currentPage = splitPage(currentPage, record, insertionIndex, catalog, index, pkIndex, fences);
+                } else {
+                    currentPage.addRecord(record, insertionIndex);
+                    currentPage.setNumRows(currentPage.getNumRows() + 1);
+                    setFences(fences, currentPage, pkIndex);
+                    addToZone(zones, currentPage, record);
+                    indexRecord(index, primaryKey, currentPage);
+                }
+                inserted = true;
             } while (!inserted);
 
 //            // If not enough space, we need a new page
@@ -234,7 +359,7 @@ public class BufferManager {
             //currentPage.setFreeSpaceStart(currentPage.getFreeSpaceStart() + (Integer.BYTES * 2)); // for offset and length
             //currentPage.setFreeSpaceEnd(currentPage.getFreeSpaceEnd() - recordSize);
             currentPage.SetModified(true);
-            currentPage.updateLastUsed();
+            recordAccess(currentPage.getPageAddress());
         }
 
         // Write the final page
@@ -246,83 +371,493 @@ public class BufferManager {
     }
 
     /**
-     * This insert is used for cartesian product since the two tables being combined should already be in their primary-key
-     * order we can just add rows one after another rather than trying to sort them
-     * @param tableName the name of the table to insert the row(s) into
-     * @param rows the row(s) to be inserted
-     * @param pageAddress the address of the first page in the table
-     * @return Address of the page the last row was inserted into
-     * @throws Exception
+     * Deletes the records of a table that match a condition in place. Pages left empty are unlinked from the table
+     * and freed, a page is merged into the page before it when one of them is less than a quarter full and the
+     * records fit
+     * @param tableName the name of the table
+     * @param condition true for the records to delete
+     * @return the number of records deleted
      */
-    public Integer heapInsert(String tableName, List<List<Object>> rows, int pageAddress) throws Exception {
+    public int delete(String tableName, Predicate<ArrayList<Object>> condition) throws Exception {
+        return deleteSelected(tableName, null, page -> {
+            BitSet selected = new BitSet(page.getNumRows());
+            for (int i = 0; i < page.getNumRows(); i++) {
+                if (condition.test(page.getRecord(i))) {
+                    selected.set(i);
+                }
+            }
+            return selected;
+        });
+    }
+
+    /**
+     * Deletes the records of a table that satisfy a where clause, the where clause is evaluated over each page as a
+     * batch and only the records that are deleted are decoded. Pages whose zone map shows no record can satisfy the
+     * where clause are not read
+     * @param tableName the name of the table
+     * @param condition the compiled where clause, or null to delete every record
+     * @return the number of records deleted
+     */
+    public int deleteWhere(String tableName, ICompiledWhere condition) throws Exception {
+        TableSchema table = Catalog.getInstance().getTable(tableName);
+        int columns = table == null ? 0 : table.getAttributes().size();
+        return deleteSelected(tableName, condition, page -> {
+            BitSet selected = new BitSet(page.getNumRows());
+            if (condition == null) {
+                selected.set(0, page.getNumRows());
+            } else {
+                condition.evaluate(new PageBatch(page, columns), selected);
+            }
+            return selected;
+        });
+    }
+
+    /**
+     * @param condition the where clause used to pass over pages by their zone maps, or null to read every page
+     * @param selector gives the rows of a page to delete, it is called with the page write latched
+     */
+    private int deleteSelected(String tableName, ICompiledWhere condition, Function<Page, BitSet> selector)
+            throws Exception {
         Catalog catalog = Catalog.getInstance();
         TableSchema table = catalog.getTable(tableName);
+        if (table == null) {
+            throw new Exception("Table does not exist: " + tableName);
+        }
+        BPlusTree index = getIndex(tableName);
+        FenceKeys fences = catalog.getFenceKeys(tableName);
+        ZoneMaps zones = condition == null ? catalog.getZoneMaps(tableName) : getZoneMaps(tableName);
+        Integer pkIndex = table.getPrimaryKeyIndex();
+        int deleted = 0;
+        int previousAddress = -1;
+        boolean previousChanged = false;
+        int address = table.getRootPageID();
+        while (address != -1) {
+            // a page after a changed one is read anyway since it may be merged into it
+            ZoneMaps.Zone zone = condition == null || previousChanged ? null : zones.get(address);
+            if (zone != null && !condition.mayMatch(zone)) {
+                previousAddress = address;
+                address = zone.getNextPage();
+                continue;
+            }
+            Page page = pin(address, tableName);
+            try {
+                List<Object> deletedKeys = new ArrayList<>();
+                page.getLatch().writeLock().lock();
+                try {
+                    BitSet selected = selector.apply(page);
+                    for (int i = selected.previousSetBit(page.getNumRows() - 1); i >= 0;
+                         i = selected.previousSetBit(i - 1)) {
+                        deletedKeys.add(page.getRecord(i).get(pkIndex));
+                        page.removeRecord(i);
+                    }
+                    if (zones != null && zones.get(address) == null) {
+                        zones.setPage(page);
+                    }
+                } finally {
+                    page.getLatch().writeLock().unlock();
+                }
+                boolean changed = !deletedKeys.isEmpty();
+                if (changed) {
+                    page.SetModified(true);
+                    setFences(fences, page, pkIndex);
+                    deleted += deletedKeys.size();
+                }
+                int nextAddress = page.getNextPage();
+
+                if (previousAddress != -1 && (changed || previousChanged)) {
+                    Page previous = pin(previousAddress, tableName);
+                    try {
+                        if (page.isEmpty() || ((isUnderfull(previous) || isUnderfull(page))
+                                && usedSpace(page) <= previous.getFreeSpaceEnd() - previous.getFreeSpaceStart())) {
+                            List<Object> movedKeys = new ArrayList<>();
+                            previous.getLatch().writeLock().lock();
+                            try {
+                                for (int i = 0; i < page.getNumRows(); i++) {
+                                    ArrayList<Object> record = page.getRecord(i);
+                                    previous.addRecord(record);
+                                    previous.setNumRows(previous.getNumRows() + 1);
+                                    movedKeys.add(record.get(pkIndex));
+                                }
+                                previous.setNextPage(nextAddress);
+                            } finally {
+                                previous.getLatch().writeLock().unlock();
+                            }
+                            previous.SetModified(true);
+                            if (fences != null) {
+                                fences.removePage(address);
+                            }
+                            setFences(fences, previous, pkIndex);
+                            if (zones != null) {
+                                zones.removePage(address);
+                            }
+                            setZone(zones, previous);
+                            freePage(address);
+                            removeKeys(index, deletedKeys);
+                            if (index != null) {
+                                for (Object key : movedKeys) {
+                                    index.insert(key, previousAddress);
+                                }
+                            }
+                            previousChanged = true;
+                            address = nextAddress;
+                            continue;
+                        }
+                    } finally {
+                        unpin(previous);
+                    }
+                }
+                removeKeys(index, deletedKeys);
+                previousAddress = address;
+                previousChanged = changed;
+                address = nextAddress;
+            } finally {
+                unpin(page);
+            }
+        }
+        return deleted;
+    }
 
+    /**
+     * Updates records of a table in place. Every record is checked before anything is changed so an update that
+     * fails leaves the table as it was. A record that grows past the free space of its page is taken out of the
+     * page and inserted again after the other records are updated
+     * @param tableName the name of the table
+     * @param update the change to make, it must not change the primary key
+     * @return the number of records updated
+     */
+    public int update(String tableName, RecordUpdate update) throws Exception {
+        Catalog catalog = Catalog.getInstance();
+        TableSchema table = catalog.getTable(tableName);
         if (table == null) {
             throw new Exception("Table does not exist: " + tableName);
         }
+        int updated = 0;
+        List<Integer> changedPages = new ArrayList<>();
+        int address = table.getRootPageID();
+        while (address != -1) {
+            Page page = select(address, tableName);
+            boolean changed = false;
+            for (int i = 0; i < page.getNumRows(); i++) {
+                ArrayList<Object> record = update.apply(page.getRecord(i));
+                if (record == null) {
+                    continue;
+                }
+                // a record that fits in an empty page always finds a place, so no page is left empty below
+                if (calculateRecordSize(table, record) + Integer.BYTES * 2 > catalog.getPageSize() - Integer.BYTES * 4) {
+                    throw new Exception("Page size too small for this entry for records of this size please create a new database with a larger page size");
+                }
+                updated++;
+                changed = true;
+            }
+            if (changed) {
+                changedPages.add(address);
+            }
+            address = page.getNextPage();
+        }
 
-        Page currentPage = select(pageAddress, tableName);
+        List<List<Object>> moved = new ArrayList<>();
+        FenceKeys fences = catalog.getFenceKeys(tableName);
+        ZoneMaps zones = catalog.getZoneMaps(tableName);
+        for (int pageAddress : changedPages) {
+            Page page = pin(pageAddress, tableName);
+            page.getLatch().writeLock().lock();
+            try {
+                // backwards so removing a record does not shift the ones still to be updated
+                for (int i = page.getNumRows() - 1; i >= 0; i--) {
+                    ArrayList<Object> record = update.apply(page.getRecord(i));
+                    if (record != null && !page.replaceRecord(i, record)) {
+                        page.removeRecord(i);
+                        moved.add(record);
+                    }
+                }
+                page.SetModified(true);
+                setFences(fences, page, table.getPrimaryKeyIndex());
+                setZone(zones, page);
+            } finally {
+                page.getLatch().writeLock().unlock();
+                unpin(page);
+            }
+        }
+        for (List<Object> record : moved) {
+            List<List<Object>> row = new ArrayList<>();
+            row.add(record);
+            insert(tableName, row, table.getRootPageID());
+        }
+        return updated;
+    }
 
+    /**
+     * Finds which keys of a sorted list are already in a table. The fence keys give the one page each key can be
+     * in and the page is binary searched, pages whose keys are all outside the list are not read
+     * @param tableName the name of the table
+     * @param sortedKeys primary key values in ascending order
+     * @return the keys that are in the table
+     */
+    public Set<Object> existingKeys(String tableName, List<Object> sortedKeys) throws Exception {
+        TableSchema table = Catalog.getInstance().getTable(tableName);
+        if (table == null) {
+            throw new Exception("Table does not exist: " + tableName);
+        }
+        FenceKeys fences = fenceKeys(table);
+        int pkIndex = table.getPrimaryKeyIndex();
+        Set<Object> existing = new HashSet<>();
+        Page page = null;
+        for (Object key : sortedKeys) {
+            Integer address = fences.findPage(key);
+            if (address == null || comparePrimaryKey(key, fences.getLastKey(address)) > 0) {
+                continue;
+            }
+            if (page == null || page.getPageAddress() != address) {
+                page = select(address, tableName);
+            }
+            int row = findSlot(page, key, pkIndex);
+            if (row < page.getNumRows() && comparePrimaryKey(page.getValue(row, pkIndex), key) == 0) {
+                existing.add(key);
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Loads rows into a table with one pass over the pages they go into. The rows that belong in a page are merged
+     * with its records and packed into the page and as many new pages after it as they need, instead of splitting
+     * the page once per record. Every row is checked before anything is changed
+     * @param tableName the name of the table
+     * @param rows the rows in primary key order, none of their keys may be in the table yet
+     * @return Address of the page the last row was inserted into
+     */
+    public Integer bulkInsert(String tableName, List<List<Object>> rows) throws Exception {
+        Catalog catalog = Catalog.getInstance();
+        TableSchema table = catalog.getTable(tableName);
+        if (table == null) {
+            throw new Exception("Table does not exist: " + tableName);
+        }
         for (List<Object> row : rows) {
-            // Convert List<Object> to ArrayList<Object>
-            ArrayList<Object> record = new ArrayList<>(row);
+            if (calculateRecordSize(table, new ArrayList<>(row)) + Integer.BYTES * 2 > catalog.getPageSize() - Integer.BYTES * 4) {
+                throw new Exception("Page size too small for this entry for records of this size please create a new database with a larger page size");
+            }
+        }
+        int pkIndex = table.getPrimaryKeyIndex();
+        BPlusTree index = getIndex(tableName);
+        FenceKeys fences = fenceKeys(table);
+        int lastAddress = table.getRootPageID();
+        int next = 0;
+        while (next < rows.size()) {
+            // The fence keys give the page holding the closest smaller key without walking the chain
+            Integer floorPage = fences.findPage(rows.get(next).get(pkIndex));
+            int address = floorPage != null ? floorPage : table.getRootPageID();
+
+            // the rows below the first key of the following page belong in this one
+            Object bound = fences.nextFirstKey(address);
+            int end = next + 1;
+            while (end < rows.size() && (bound == null || comparePrimaryKey(rows.get(end).get(pkIndex), bound) < 0)) {
+                end++;
+            }
 
-            // Calculate the size needed for this record (data + directory overhead)
-            int recordSize = calculateRecordSize(table, record);
-            int directoryOverhead = Integer.BYTES * 2; // offset and length in directory
-            int totalRecordSize = recordSize + directoryOverhead;
-            int availableSpace = currentPage.getFreeSpaceEnd() - currentPage.getFreeSpaceStart();
-
-            // If not enough space, we need a new page
-            if (availableSpace < totalRecordSize) {
-                // Write current page before moving to a new one
-                //if (currentPage.getModified()) {
-                //writePage(currentPage);
-                //currentPage.SetModified(false);
-                //}
-
-                // Get a new page
-                int newPageAddress;
-                if (catalog.hasFreePages()) {
-                    newPageAddress = catalog.getFirstFreePage();
-                    catalog.removeFirstFreePage();
-                } else {
-                    // Allocate a new page at the end
-                    newPageAddress = catalog.getFirstFreeAddress();
-                }
+            Page last = mergeIntoPage(table, select(address, tableName), rows.subList(next, end), index, pkIndex,
+                    fences);
+            lastAddress = last.getPageAddress();
+            next = end;
+        }
+        return lastAddress;
+    }
+
+    /**
+     * Merges sorted rows with the records of a page, filling the page before records move on to new pages that
+     * are linked in after it
+     * @return the last page the records were written to
+     */
+    private Page mergeIntoPage(TableSchema table, Page page, List<List<Object>> rows, BPlusTree index,
+                               int pkIndex, FenceKeys fences) throws Exception {
+        Catalog catalog = Catalog.getInstance();
+        String tableName = table.getTableName();
+        ZoneMaps zones = catalog.getZoneMaps(tableName);
+        List<ArrayList<Object>> records = new ArrayList<>();
+        List<Boolean> added = new ArrayList<>();
+        int existing = 0;
+        for (List<Object> row : rows) {
+            ArrayList<Object> record = new ArrayList<>(row);
+            while (existing < page.getNumRows()
+                    && comparePrimaryKey(page.getValue(existing, pkIndex), record.get(pkIndex)) < 0) {
+                records.add(page.getRecord(existing++));
+                added.add(false);
+            }
+            records.add(record);
+            added.add(true);
+        }
+        while (existing < page.getNumRows()) {
+            records.add(page.getRecord(existing++));
+            added.add(false);
+        }
+        for (int i = page.getNumRows() - 1; i >= 0; i--) {
+            page.removeRecord(i);
+        }
 
-                // Mark current page as having a next page
+        // the records are spread evenly over the pages they need so the last one is not left nearly empty
+        int[] sizes = new int[records.size()];
+        long totalSize = 0;
+        for (int i = 0; i < records.size(); i++) {
+            sizes[i] = calculateRecordSize(table, records.get(i)) + Integer.BYTES * 2;
+            totalSize += sizes[i];
+        }
+        int pageSpace = catalog.getPageSize() - Integer.BYTES * 4;
+        long pagesNeeded = (totalSize + pageSpace - 1) / pageSpace;
+        long fill = (totalSize + pagesNeeded - 1) / pagesNeeded;
+
+        int nextAddress = page.getNextPage();
+        List<Object> movedKeys = new ArrayList<>();
+        List<Integer> movedPages = new ArrayList<>();
+        Page currentPage = page;
+        long used = 0;
+        int pageStart = 0;
+        for (int i = 0; i < records.size(); i++) {
+            ArrayList<Object> record = records.get(i);
+            if (used >= fill || currentPage.getFreeSpaceEnd() - currentPage.getFreeSpaceStart() < sizes[i]) {
+                fences.setPage(currentPage.getPageAddress(), records.get(pageStart).get(pkIndex),
+                        records.get(i - 1).get(pkIndex));
+                pageStart = i;
+                int newPageAddress = allocatePageAddress(tableName);
+                // the full page is finished before the new page can evict it
                 currentPage.setNextPage(newPageAddress);
                 currentPage.SetModified(true);
-                //let buffer handle this
-                //writePage(currentPage);
-                //currentPage.SetModified(false);
-
-                // Create the new page
+                setZone(zones, currentPage);
                 newPage(newPageAddress, tableName);
                 currentPage = select(newPageAddress, tableName);
+                used = 0;
             }
-
-            // Add record to current page
+            used += sizes[i];
             currentPage.addRecord(record);
             currentPage.setNumRows(currentPage.getNumRows() + 1);
+            if (added.get(i) || currentPage != page) {
+                movedKeys.add(record.get(pkIndex));
+                movedPages.add(currentPage.getPageAddress());
+            }
+        }
+        currentPage.setNextPage(nextAddress);
+        currentPage.SetModified(true);
+        recordAccess(currentPage.getPageAddress());
+        fences.setPage(currentPage.getPageAddress(), records.get(pageStart).get(pkIndex),
+                records.get(records.size() - 1).get(pkIndex));
+        setZone(zones, currentPage);
+
+        // Index updates come last since they can evict pages
+        if (index != null) {
+            for (int i = 0; i < movedKeys.size(); i++) {
+                index.insert(movedKeys.get(i), movedPages.get(i));
+            }
+        }
+        return currentPage;
+    }
 
-            // Update free space pointers
-            //currentPage.setFreeSpaceStart(currentPage.getFreeSpaceStart() + (Integer.BYTES * 2)); // for offset and length
-            //currentPage.setFreeSpaceEnd(currentPage.getFreeSpaceEnd() - recordSize);
-            currentPage.SetModified(true);
-            currentPage.updateLastUsed();
+    private void removeKeys(BPlusTree index, List<Object> keys) throws IOException {
+        if (index != null) {
+            for (Object key : keys) {
+                index.delete(key);
+            }
         }
+    }
 
-        // Write the final page
-        //if (currentPage.getModified()) {
-        //writePage(currentPage);
-        //currentPage.SetModified(false);
-        //}
-        return currentPage.getPageAddress();
+    /**
+     * @return the bytes a page uses for records and their directory entries
+     */
+    private int usedSpace(Page page) {
+        int pageSize = Catalog.getInstance().getPageSize();
+        int header = Integer.BYTES * 4;
+        return (page.getFreeSpaceStart() - page.getPageAddress() - header)
+                + (page.getPageAddress() + pageSize - page.getFreeSpaceEnd());
     }
 
+    private boolean isUnderfull(Page page) {
+        return usedSpace(page) < Catalog.getInstance().getPageSize() / 4;
+    }
+
+    /**
+     * Removes a data page that is no longer part of a table from the buffer and gives it back to the free space map
+     */
+    private void freePage(int address) {
+        synchronized (frames) {
+            this.bufferPages.remove(address);
+            replacementPolicy.remove(address);
+        }
+        readAhead.invalidate(address);
+        Catalog.getInstance().getFreeSpaceMap().free(address);
+    }
+
+    /**
+     * Tells the replacement policy a buffered page or index node was used
+     */
+    private void recordAccess(int address) {
+        synchronized (frames) {
+            replacementPolicy.recordAccess(address);
+        }
+    }
+
+    /**
+     * This insert is used for cartesian product since the two tables being combined should already be in their primary-key
+     * order we can just add rows one after another rather than trying to sort them
+     * @param tableName the name of the table to insert the row(s) into
+     * @param rows the row(s) to be inserted
+     * @param pageAddress the address of the first page in the table
+     * @return Address of the page the last row was inserted into
+     * @throws Exception
+     */
+    public Integer heapInsert(String tableName, List<List<Object>> rows, int pageAddress) throws Exception {
+        Catalog catalog = Catalog.getInstance();
+        TableSchema table = catalog.getTable(tableName);
+
+        if (table == null) {
+            throw new Exception("Table does not exist: " + tableName);
+        }
+
+        // temp tables of other sessions are filled at the same time, the page being filled is pinned so their
+        // reads can not evict it part way
+        Page currentPage = pin(pageAddress, tableName);
+        try {
+            // the rows are not in primary key order so fence keys can not be kept for the table
+            catalog.setFenceKeys(tableName, null);
+            ZoneMaps zones = catalog.getZoneMaps(tableName);
+
+            for (List<Object> row : rows) {
+                // Convert List<Object> to ArrayList<Object>
+                ArrayList<Object> record = new ArrayList<>(row);
+
+                // Calculate the size needed for this record (data + directory overhead)
+                int recordSize = calculateRecordSize(table, record);
+                int directoryOverhead = Integer.BYTES * 2; // offset and length in directory
+                int totalRecordSize = recordSize + directoryOverhead;
+                int availableSpace = currentPage.getFreeSpaceEnd() - currentPage.getFreeSpaceStart();
+
+                // If not enough space, we need a new page
+                if (availableSpace < totalRecordSize) {
+                    // Get a new page
+                    int newPageAddress = allocatePageAddress(tableName);
+
+                    // Mark current page as having a next page
+                    currentPage.setNextPage(newPageAddress);
+                    currentPage.SetModified(true);
+                    setZone(zones, currentPage);
+
+                    // Create the new page
+                    newPage(newPageAddress, tableName);
+                    Page full = currentPage;
+                    currentPage = pin(newPageAddress, tableName);
+                    unpin(full);
+                }
+
+                // Add record to current page
+                currentPage.addRecord(record);
+                currentPage.setNumRows(currentPage.getNumRows() + 1);
+                currentPage.SetModified(true);
+                addToZone(zones, currentPage, record);
+                recordAccess(currentPage.getPageAddress());
+            }
+            return currentPage.getPageAddress();
+        } finally {
+            unpin(currentPage);
+        }
+    }
+
+
 
     /**
      * Splits the current page into two with half the records staying in the current page and the half the records into
@@ -332,24 +867,23 @@ public class BufferManager {
      * @param record the record that needs to be inserted which triggered the split
      * @param insertionIndex the index where the current record should be inserted ignoring the split
      * @param catalog the catalog (Note: this is simply included as to not instantiate another instance of the catalog)
+     * @param index the primary key index of the table, null if the table is not indexed
+     * @param pkIndex the index of the primary key in the record
+     * @param fences the fence keys of the table
      * @return
      * @throws Exception
      */
-    private Page splitPage(Page currentPage, ArrayList<Object> record, int insertionIndex, Catalog catalog) throws Exception {
+    private Page splitPage(Page currentPage, ArrayList<Object> record, int insertionIndex, Catalog catalog,
+                           BPlusTree index, int pkIndex, FenceKeys fences) throws Exception {
 
         ArrayList<ArrayList<Object>> recordsBeforeSplit = currentPage.arrayForSplit(record, insertionIndex);
         int recordSize = recordsBeforeSplit.size();
+        Page leftPage = currentPage;
+        int leftPageAddress = currentPage.getPageAddress();
         int leftHalfSize = recordSize - recordSize / 2;
 
         //create new page
-        int newPageAddress;
-        if (catalog.hasFreePages()) {
-            newPageAddress = catalog.getFirstFreePage();
-            catalog.removeFirstFreePage();
-        } else {
-            // Allocate a new page at the end
-            newPageAddress = catalog.getFirstFreeAddress();
-        }
+        int newPageAddress = allocatePageAddress(currentPage.getTableName());
         newPage(newPageAddress, currentPage.getTableName());
         int newPageNext = -1;
         if(currentPage.getNextPage() != -1){
@@ -363,7 +897,7 @@ public class BufferManager {
         for (int i = recordSize-1; i >= leftHalfSize; i--) {
             currentPage.removeRecord(i);
         }
-        currentPage.updateLastUsed();
+        recordAccess(currentPage.getPageAddress());
         currentPage.setPageHasSplit(true);
 
         currentPage = select(currentPage.getNextPage(), currentPage.getTableName());
@@ -373,11 +907,127 @@ public class BufferManager {
             currentPage.addRecord(recordsBeforeSplit.get(i));
             currentPage.setNumRows(currentPage.getNumRows() + 1);
         }
-
-        currentPage.updateLastUsed();
+        recordAccess(currentPage.getPageAddress());
+        fences.setPage(leftPageAddress, recordsBeforeSplit.get(0).get(pkIndex),
+                recordsBeforeSplit.get(leftHalfSize - 1).get(pkIndex));
+        fences.setPage(newPageAddress, recordsBeforeSplit.get(leftHalfSize).get(pkIndex),
+                recordsBeforeSplit.get(recordSize - 1).get(pkIndex));
+        ZoneMaps zones = catalog.getZoneMaps(currentPage.getTableName());
+        setZone(zones, leftPage);
+        setZone(zones, currentPage);
+
+        // Index updates come last since they can evict pages, records that moved need to point at the new page
+        if (index != null) {
+            for (int i = leftHalfSize; i < recordSize; i++) {
+                index.insert(recordsBeforeSplit.get(i).get(pkIndex), newPageAddress);
+            }
+            int recordPosition = insertionIndex == -1 ? recordSize - 1 : insertionIndex;
+            if (recordPosition < leftHalfSize) {
+                index.insert(record.get(pkIndex), leftPageAddress);
+            }
+        }
         return currentPage;
     }
 
+    /**
+     * Gets the fence keys of a table, building them from the page chain the first time they are needed
+     */
+    private FenceKeys fenceKeys(TableSchema table) throws Exception {
+        Catalog catalog = Catalog.getInstance();
+        FenceKeys fences = catalog.getFenceKeys(table.getTableName());
+        if (fences == null) {
+            fences = new FenceKeys();
+            int pkIndex = table.getPrimaryKeyIndex();
+            int address = table.getRootPageID();
+            while (address != -1) {
+                Page page = select(address, table.getTableName());
+                setFences(fences, page, pkIndex);
+                address = page.getNextPage();
+            }
+            catalog.setFenceKeys(table.getTableName(), fences);
+        }
+        return fences;
+    }
+
+    /**
+     * Brings the fence keys of a page up to date after its records changed
+     * @param fences the fence keys of the table, nothing is done if they have not been built
+     */
+    private void setFences(FenceKeys fences, Page page, int pkIndex) {
+        if (fences == null) {
+            return;
+        }
+        if (page.getNumRows() == 0) {
+            fences.removePage(page.getPageAddress());
+        } else {
+            fences.setPage(page.getPageAddress(), page.getValue(0, pkIndex),
+                    page.getValue(page.getNumRows() - 1, pkIndex));
+        }
+    }
+
+    /**
+     * Gets the zone maps of a table, pages get their zone map as filtered scans read them
+     * @param tableName the name of the table
+     * @return the zone maps, or null if the table does not exist
+     */
+    public ZoneMaps getZoneMaps(String tableName) {
+        Catalog catalog = Catalog.getInstance();
+        ZoneMaps zones = catalog.getZoneMaps(tableName);
+        TableSchema table = catalog.getTable(tableName);
+        if (zones == null && table != null) {
+            zones = new ZoneMaps(table);
+            catalog.setZoneMaps(tableName, zones);
+        }
+        return zones;
+    }
+
+    /**
+     * Makes the zone map of a page again after its records were rearranged or its next page changed
+     * @param zones the zone maps of the table, nothing is done if they have not been made
+     */
+    private void setZone(ZoneMaps zones, Page page) {
+        if (zones != null) {
+            zones.setPage(page);
+        }
+    }
+
+    /**
+     * Widens the zone map of a page for a record added to it
+     * @param zones the zone maps of the table, nothing is done if they have not been made
+     */
+    private void addToZone(ZoneMaps zones, Page page, List<Object> record) {
+        if (zones != null) {
+            zones.addRecord(page, record);
+        }
+    }
+
+    /**
+     * Binary search for the first record of a page whose primary key is not smaller than the given key
+     * @return the row of that record, or the number of rows if every key in the page is smaller
+     */
+    private int findSlot(Page page, Object primaryKey, int pkIndex) {
+        int low = 0;
+        int high = page.getNumRows();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (comparePrimaryKey(page.getValue(middle, pkIndex), primaryKey) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Points the index entry of a key at the page the record now lives in
+     */
+    private void indexRecord(BPlusTree index, Object primaryKey, Page page) throws IOException {
+        if (index != null) {
+            index.insert(primaryKey, page.getPageAddress());
+        }
+    }
+
     private int comparePrimaryKey(Object pk1, Object pk2){
         return ((Comparable)pk1).compareTo(pk2);
     }
@@ -408,54 +1058,141 @@ public class BufferManager {
      * Flush all modified pages to disk
      */
     public void flushAllPages() throws IOException {
+        synchronized (frames) {
+            for (Page page : bufferPages.values()) {
+                if (page.getModified()) {
+                    writePage(page);
+                    page.SetModified(false);
+                }
+            }
+            this.bufferPages.clear();
+            for (BPlusTreeNode node : indexPages.values()) {
+                if (node.getModified()) {
+                    writeIndexNode(node);
+                    node.SetModified(false);
+                }
+            }
+            this.indexPages.clear();
+            replacementPolicy.clear();
+        }
+    }
+
+    /**
+     * Closes the database file, called on shutdown after the buffer has been flushed
+     */
+    public void close() throws IOException {
+        readAhead.shutdown();
+        pageFile.force();
+        pageFile.close();
+    }
+
+    /**
+     * Logs the pages and index nodes changed since they were last logged, they stay dirty in the buffer
+     */
+    public void logChanges() throws IOException {
+        if (writeAheadLog == null) {
+            return;
+        }
+        for (Page page : bufferPages.values()) {
+            if (page.getModified() && !page.isLogged()) {
+                writeAheadLog.logPage(page.getPageAddress(), encodePage(page));
+                page.setLogged(true);
+            }
+        }
+        for (BPlusTreeNode node : indexPages.values()) {
+            if (node.getModified() && !node.isLogged()) {
+                writeAheadLog.logPage(node.getAddress(), encodeIndexNode(node));
+                node.setLogged(true);
+            }
+        }
+    }
+
+    /**
+     * Writes every modified page to database.bin and syncs it, unlike flushAllPages the pages stay in the buffer
+     */
+    public void checkpoint() throws IOException {
         for (Page page : bufferPages.values()) {
             if (page.getModified()) {
                 writePage(page);
                 page.SetModified(false);
             }
         }
-        this.bufferPages.clear();
+        for (BPlusTreeNode node : indexPages.values()) {
+            if (node.getModified()) {
+                writeIndexNode(node);
+                node.SetModified(false);
+            }
+        }
+        pageFile.force();
     }
 
     /**
-     * Finds the address of the least recently used page and returns it
-     * @return the address of the least recently used page
+     * Replays the committed statements of a write ahead log into the database files, must be called before the
+     * catalog is loaded
+     * @return the number of statements recovered
      */
-    private Integer getLeastRecentlyUsedPage(){
-        Integer leastRecentlyUsedPage = null;
-        Instant leastRecentlyUsedTime = null;
-        for (Integer address : this.bufferPages.keySet()) {
-            Page page = this.bufferPages.get(address);
-            if (leastRecentlyUsedPage == null) {
-                leastRecentlyUsedTime = page.getLastUsed();
-                leastRecentlyUsedPage = address;
-            } else{
-                if (leastRecentlyUsedTime.isAfter(page.getLastUsed()))
-                {
-                    leastRecentlyUsedTime = page.getLastUsed();
-                    leastRecentlyUsedPage = address;
-                }
-            }
+    public int recover() throws IOException {
+        if (writeAheadLog == null) {
+            return 0;
         }
-        return leastRecentlyUsedPage;
+        return writeAheadLog.recover(pageFile, Catalog.getInstance().getCatalogPath());
     }
 
     /**
-     * Removes the least recently used page from the buffer
+     * Removes the page or index node chosen by the replacement policy from the buffer. Pages that are pinned or
+     * being changed by another thread are passed over, they go back to the policy without counting as a use. When
+     * every frame is passed over nothing is removed and the buffer holds one frame more than its size until a page
+     * is unpinned. A changed page is logged and the log forced to disk before the page is written to database.bin
      */
     private void removeLRUPage() throws IOException {
-        if (bufferPages.isEmpty()) {
-            return; // Nothing to remove
-        }
-        Integer lruPage = getLeastRecentlyUsedPage();
-        Page page = bufferPages.get(lruPage);
-        if (page == null) {
-            return; // Page already removed
-        }
-        this.bufferPages.remove(lruPage);
-        //writes page after removal if modified
-        if (page.getModified()) {
-            writePage(page);
+        synchronized (frames) {
+            List<Integer> passedOver = new ArrayList<>();
+            try {
+                Integer victim;
+                while ((victim = replacementPolicy.evict()) != null) {
+                    BPlusTreeNode node = indexPages.remove(victim);
+                    if (node != null) {
+                        if (node.getModified()) {
+                            if (writeAheadLog != null) {
+                                if (!node.isLogged()) {
+                                    writeAheadLog.logPage(node.getAddress(), encodeIndexNode(node));
+                                }
+                                writeAheadLog.force();
+                            }
+                            writeIndexNode(node);
+                        }
+                        return;
+                    }
+                    Page page = bufferPages.get(victim);
+                    if (page == null) {
+                        return; // Page already removed
+                    }
+                    if (page.isPinned() || !page.getLatch().readLock().tryLock()) {
+                        passedOver.add(victim);
+                        continue;
+                    }
+                    try {
+                        bufferPages.remove(victim);
+                        //writes page after removal if modified
+                        if (page.getModified()) {
+                            if (writeAheadLog != null) {
+                                if (!page.isLogged()) {
+                                    writeAheadLog.logPage(page.getPageAddress(), encodePage(page));
+                                }
+                                writeAheadLog.force();
+                            }
+                            writePage(page);
+                        }
+                    } finally {
+                        page.getLatch().readLock().unlock();
+                    }
+                    return;
+                }
+            } finally {
+                for (int address : passedOver) {
+                    replacementPolicy.restore(address);
+                }
+            }
         }
     }
 
@@ -465,271 +1202,517 @@ public class BufferManager {
      * @param page the page to add to the buffer
      */
     private void addPageToBuffer(Page page) throws IOException {
-        //if buffer page will fit in buffer add it, otherwise remove the last used item and add this page
-        if (this.bufferSize > 0 && this.bufferPages.size() >= this.bufferSize) {
-            removeLRUPage();
-        }
-        if (this.bufferSize > 0) {
-            this.bufferPages.put(page.getPageAddress(), page);
+        synchronized (frames) {
+            //if buffer page will fit in buffer add it, otherwise remove the last used item and add this page
+            if (this.bufferSize > 0 && bufferedCount() >= this.bufferSize) {
+                removeLRUPage();
+            }
+            if (this.bufferSize > 0) {
+                this.bufferPages.put(page.getPageAddress(), page);
+                replacementPolicy.add(page.getPageAddress());
+            }
         }
-        page.updateLastUsed();
     }
 
     //Do not call buffer manager handles this
     private void writePage(Page page) throws IOException {
-        try (RandomAccessFile currentPage = new RandomAccessFile(dbLocation, "rw")){
-            currentPage.seek(page.getPageAddress());
-            Catalog catalog = Catalog.getInstance();
-            if (page.getTableName() == null) {
-                catalog.addFirstFreePage(page.getPageAddress());
-                for(int i = 0; i<catalog.getPageSize(); i++){
-                    currentPage.write((byte)0);
-                }
-                return; // Exit early after writing empty page
-            }
+        pageFile.write(page.getPageAddress(), encodePage(page));
+        readAhead.invalidate(page.getPageAddress());
+    }
 
-            // Write page header (4 integers = 16 bytes)
-            currentPage.writeInt(page.getNumRows());
-            currentPage.writeInt(page.getFreeSpaceStart());
-            currentPage.writeInt(page.getFreeSpaceEnd());
-            currentPage.writeInt(page.getNextPage());
+    /**
+     * Encodes a page the way it is stored in database.bin, a page with no table is all zeros
+     */
+    private ByteBuffer encodePage(Page page) {
+        Catalog catalog = Catalog.getInstance();
+        int pageAddress = page.getPageAddress();
+        ByteBuffer buffer = pageFile.allocate();
+        if (page.getTableName() == null) {
+            return buffer;
+        }
 
-            TableSchema table = catalog.getTable(page.getTableName());
-            List<Attribute> attributes = table.getAttributes();
+        // Write page header (4 integers = 16 bytes)
+        buffer.putInt(page.getNumRows());
+        buffer.putInt(page.getFreeSpaceStart());
+        buffer.putInt(page.getFreeSpaceEnd());
+        buffer.putInt(page.getNextPage());
 
-            int end = page.getPageAddress()+catalog.getPageSize();
-            //loop for every record
-            for (int i = 0; i < page.getNumRows(); i++) {
-                ArrayList<Object> record = page.getRecord(i);
-                int recordLength = 0;
-                int nullBitArray = 0;
-                long fixedEnd = 0;
-                // Calculate null bit array and fixed record length
-                for (int j = 0; j<record.size(); j++) {
-                    if (record.get(j) == null) {
-                        nullBitArray += (int)Math.pow(2,j);
+        TableSchema table = catalog.getTable(page.getTableName());
+        List<Attribute> attributes = table.getAttributes();
+        if (table.isColumnar()) {
+            return encodeColumnar(page, attributes, buffer);
+        }
+
+        // offsets stored in the page are file addresses, the buffer starts at pageAddress
+        int end = pageAddress+catalog.getPageSize();
+        //loop for every record
+        for (int i = 0; i < page.getNumRows(); i++) {
+            ArrayList<Object> record = page.getRecord(i);
+            int recordLength = 0;
+            int nullBitArray = 0;
+            int fixedEnd = 0;
+            // Calculate null bit array and fixed record length
+            for (int j = 0; j<record.size(); j++) {
+                if (record.get(j) == null) {
+                    nullBitArray += (int)Math.pow(2,j);
+                } else {
+                    if (attributes.get(j).getDefinition().getType() == VARCHAR) {
+                        // VARCHAR: pointer + length in the record (actual data stored separately)
+                        recordLength += Integer.BYTES * 2 + record.get(j).toString().getBytes(StandardCharsets.UTF_8).length;
+                        fixedEnd += Integer.BYTES * 2;
                     } else {
-                        if (attributes.get(j).getDefinition().getType() == VARCHAR) {
-                            // VARCHAR: pointer + length in the record (actual data stored separately)
-                            recordLength += Integer.BYTES * 2 + record.get(j).toString().getBytes(StandardCharsets.UTF_8).length;
-                            fixedEnd += Integer.BYTES * 2;
-                        } else {
-                            recordLength += attributes.get(j).getDefinition().getByteSize();
-                            fixedEnd += attributes.get(j).getDefinition().getByteSize();
-                        }
+                        recordLength += attributes.get(j).getDefinition().getByteSize();
+                        fixedEnd += attributes.get(j).getDefinition().getByteSize();
                     }
                 }
-                // Add size of null bit array
-                recordLength += Integer.BYTES;
-                fixedEnd     += Integer.BYTES;
-
-                // Save directory position and write offset and length
-                end = end-recordLength;
-                fixedEnd    += end;
-                currentPage.writeInt(end);
-                currentPage.writeInt(recordLength);
-                long start = currentPage.getFilePointer();
-
-                // Seek to where record data will be written
-                currentPage.seek(end);
-
-                // Write null bit array
-                currentPage.writeInt(nullBitArray);
-
-                // Write record data
-                for (int j = 0; j<record.size(); j++) {
-                    int bit = (int)Math.pow(2,j);
-                    if ((nullBitArray & bit) == 0) {
-                        switch (attributes.get(j).getDefinition().getType()) {
-                            case INTEGER:
-                                currentPage.writeInt((int) record.get(j));
-                                break;
-                            case DOUBLE:
-                                currentPage.writeDouble((double) record.get(j));
-                                break;
-                            case BOOLEAN:
-                                currentPage.write((byte) ((boolean) record.get(j) ? 1 : 0));
-                                break;
-                            case CHAR:
-                                currentPage.write(((String) record.get(j)).getBytes(StandardCharsets.UTF_8));
-                                break;
-                            case VARCHAR:
-                                currentPage.writeInt((int)fixedEnd);
-                                currentPage.writeInt(((String) record.get(j)).getBytes(StandardCharsets.UTF_8).length);
-                                long currentLoc = currentPage.getFilePointer();
-                                currentPage.seek(fixedEnd);
-                                currentPage.write(((String)record.get(j)).getBytes());
-                                fixedEnd = currentPage.getFilePointer();
-                                currentPage.seek(currentLoc);
-                                break;
-                        }
+            }
+            // Add size of null bit array
+            recordLength += Integer.BYTES;
+            fixedEnd     += Integer.BYTES;
+
+            // Write offset and length to the directory
+            end = end-recordLength;
+            fixedEnd    += end;
+            buffer.putInt(end);
+            buffer.putInt(recordLength);
+
+            // Write null bit array
+            int position = end - pageAddress;
+            buffer.putInt(position, nullBitArray);
+            position += Integer.BYTES;
+
+            // Write record data
+            for (int j = 0; j<record.size(); j++) {
+                int bit = (int)Math.pow(2,j);
+                if ((nullBitArray & bit) == 0) {
+                    switch (attributes.get(j).getDefinition().getType()) {
+                        case INTEGER:
+                            buffer.putInt(position, (int) record.get(j));
+                            position += Integer.BYTES;
+                            break;
+                        case DOUBLE:
+                            buffer.putDouble(position, (double) record.get(j));
+                            position += Double.BYTES;
+                            break;
+                        case BOOLEAN:
+                            buffer.put(position, (byte) ((boolean) record.get(j) ? 1 : 0));
+                            position += 1;
+                            break;
+                        case CHAR:
+                            byte[] chars = ((String) record.get(j)).getBytes(StandardCharsets.UTF_8);
+                            buffer.put(position, chars);
+                            position += chars.length;
+                            break;
+                        case VARCHAR:
+                            byte[] varchar = ((String) record.get(j)).getBytes(StandardCharsets.UTF_8);
+                            buffer.putInt(position, fixedEnd);
+                            buffer.putInt(position + Integer.BYTES, varchar.length);
+                            position += Integer.BYTES * 2;
+                            buffer.put(fixedEnd - pageAddress, varchar);
+                            fixedEnd += varchar.length;
+                            break;
                     }
                 }
-                // Return to start
-                currentPage.seek(start);
             }
         }
+        return buffer;
     }
 
-    private Page readPage(int pageAddress, String tableName) throws IOException{
-        if (this.bufferPages.containsKey(pageAddress)) {
-            return this.bufferPages.get(pageAddress);
+    /**
+     * Encodes a page of a columnar table. The header is followed by the null bit array of every record, then by the
+     * non null fields of each column, one column after the other. VARCHARs are a pointer and a length in their
+     * column with the data at the end of the page. Without the record directory the records take up less space
+     * than in the row layout, so the free space kept by the page is enough for either layout
+     */
+    private ByteBuffer encodeColumnar(Page page, List<Attribute> attributes, ByteBuffer buffer) {
+        int pageAddress = page.getPageAddress();
+        int numRows = page.getNumRows();
+        for (int i = 0; i < numRows; i++) {
+            ArrayList<Object> record = page.getRecord(i);
+            int nullBitArray = 0;
+            for (int j = 0; j < record.size(); j++) {
+                if (record.get(j) == null) {
+                    nullBitArray |= 1 << j;
+                }
+            }
+            buffer.putInt(nullBitArray);
         }
-        try (RandomAccessFile currentPage = new RandomAccessFile(dbLocation, "r")){
-            currentPage.seek(pageAddress);
-            Catalog catalog = Catalog.getInstance();
-            //writes number of entries, start and end
-            int numRows =  currentPage.readInt();
-            int freeSpaceStart = currentPage.readInt();
-            int freeSpaceEnd = currentPage.readInt();
-            int nextPage = currentPage.readInt();
-            Page page = new Page(numRows, pageAddress,nextPage, freeSpaceStart, freeSpaceEnd, false, tableName);
-            TableSchema table = catalog.getTable(tableName);
-            List<Attribute> attributes = table.getAttributes();
-            //loop for every record
-            int end = freeSpaceEnd;
+        int end = buffer.capacity();
+        for (int j = 0; j < attributes.size(); j++) {
+            AttributeDefinition definition = attributes.get(j).getDefinition();
             for (int i = 0; i < numRows; i++) {
-                int recordStart = currentPage.readInt();
-                int recordLength = currentPage.readInt();
-                long start = currentPage.getFilePointer();
-                ArrayList<Object> record = new ArrayList<Object>();
-                currentPage.seek(recordStart);
-                int nullBitArray = currentPage.readInt();
-                //loop through and read and save record data.
-                for (int j = 0; j<table.getAttributes().size(); j++) {
-                    int bit = (int)Math.pow(2,j);
-                    // if not null read it in
-                    if ((nullBitArray & bit) == 0) {
-                        switch (attributes.get(j).getDefinition().getType()) {
-                            case INTEGER:
-                                record.add(currentPage.readInt());
-                                break;
-                            case DOUBLE:
-                                record.add(currentPage.readDouble());
-                                break;
-                            case BOOLEAN:
-                                record.add(currentPage.read() == 1 ? true : false);
-                                break;
-                            case CHAR:
-                                byte[] b = new byte[attributes.get(j).getDefinition().getByteSize()];
-                                currentPage.readFully(b);
-                                record.add(new String(b, StandardCharsets.UTF_8));
-                                break;
-                            case VARCHAR:
-                                // Read pointer and length from record
-                                int varcharPointer = currentPage.readInt();
-                                int varcharLength = currentPage.readInt();
-
-                                // Save current position
-                                long currentPos = currentPage.getFilePointer();
-
-                                // Seek to VARCHAR data at end of page
-                                currentPage.seek(varcharPointer);
-                                byte[] varchar = new byte[varcharLength];
-                                currentPage.readFully(varchar);
-                                record.add(new String(varchar, StandardCharsets.UTF_8));
-
-                                // Return to record position
-                                currentPage.seek(currentPos);
-                                break;
-                        }
-                    } else {
-                        // Null value - add null to maintain correct indexing
-                        record.add(null);
-                    }
+                Object value = page.getRecord(i).get(j);
+                if (value == null) {
+                    continue;
+                }
+                switch (definition.getType()) {
+                    case INTEGER:
+                        buffer.putInt((int) value);
+                        break;
+                    case DOUBLE:
+                        buffer.putDouble((double) value);
+                        break;
+                    case BOOLEAN:
+                        buffer.put((byte) ((boolean) value ? 1 : 0));
+                        break;
+                    case CHAR:
+                        byte[] chars = ((String) value).getBytes(StandardCharsets.UTF_8);
+                        int position = buffer.position();
+                        buffer.put(chars, 0, Math.min(chars.length, definition.getByteSize()));
+                        buffer.position(position + definition.getByteSize());
+                        break;
+                    case VARCHAR:
+                        byte[] varchar = ((String) value).getBytes(StandardCharsets.UTF_8);
+                        end -= varchar.length;
+                        buffer.put(end, varchar);
+                        buffer.putInt(pageAddress + end);
+                        buffer.putInt(varchar.length);
+                        break;
+                }
+            }
+        }
+        return buffer;
+    }
+
+    private Page readPage(int pageAddress, String tableName, boolean pin) throws IOException{
+        Page page = bufferedPage(pageAddress, pin);
+        if (page != null) {
+            return page;
+        }
+        ReentrantLock latch = loadLatches[Math.floorMod(pageAddress, LOAD_STRIPES)];
+        latch.lock();
+        try {
+            // another thread may have read the page while this one waited
+            page = bufferedPage(pageAddress, pin);
+            if (page != null) {
+                return page;
+            }
+            // records are decoded by the page when they are used
+            ByteBuffer buffer = readAhead.take(pageAddress);
+            if (buffer == null) {
+                buffer = pageFile.read(pageAddress);
+            }
+            pagesRead.incrementAndGet();
+            TableSchema table = Catalog.getInstance().getTable(tableName);
+            page = new Page(pageAddress, buffer, tableName, table.getAttributes(), table.isColumnar());
+            synchronized (frames) {
+                if (pin) {
+                    page.pin();
                 }
-                page.addRecord(record);
-                currentPage.seek(start);
+                addPageToBuffer(page);
             }
-            addPageToBuffer(page);
             return page;
+        } finally {
+            latch.unlock();
         }
     }
 
-    public void saveToDisk() {
-        DataOutputStream out = null;
+    /**
+     * Gets a page if it is in the buffer, pinning it before it can be evicted
+     * @return the page or null if it is not buffered
+     */
+    private Page bufferedPage(int pageAddress, boolean pin) {
+        if (!pin) {
+            return this.bufferPages.get(pageAddress);
+        }
+        synchronized (frames) {
+            Page page = this.bufferPages.get(pageAddress);
+            if (page != null) {
+                page.pin();
+            }
+            return page;
+        }
+    }
 
+    /**
+     * Returns the primary key index of a table
+     * @param tableName the name of the table
+     * @return the index or null if the table is not indexed
+     */
+    public BPlusTree getIndex(String tableName) {
+        TableSchema table = Catalog.getInstance().getTable(tableName);
+        if (!indexing || table == null || !table.hasIndex()) {
+            return null;
+        }
+        return new BPlusTree(table);
+    }
+
+    /**
+     * Checks if a table should get a primary key index. Temporary tables (names starting with $) are never indexed
+     * since their "primary key" may hold duplicates
+     */
+    public boolean shouldIndex(TableSchema table) {
+        return indexing && !table.getTableName().startsWith("$") && BPlusTree.canIndex(table);
+    }
+
+    /**
+     * Builds the index of a table from the records already in it
+     * @param tableName the name of the table
+     */
+    public void buildIndex(String tableName) throws Exception {
+        TableSchema table = Catalog.getInstance().getTable(tableName);
+        BPlusTree index = new BPlusTree(table);
+        index.create();
+        int pkIndex = table.getPrimaryKeyIndex();
+        Page page = select(table.getRootPageID(), tableName);
+        while (true) {
+            for (int i = 0; i < page.getNumRows(); i++) {
+                index.insert(page.getValue(i, pkIndex), page.getPageAddress());
+            }
+            if (page.getNextPage() == -1) {
+                break;
+            }
+            page = select(page.getNextPage(), tableName);
+        }
+    }
+
+    /**
+     * Creates a new empty index node in a free page
+     * @param leaf whether the node is a leaf
+     * @return the new node
+     */
+    public BPlusTreeNode newIndexNode(boolean leaf) throws IOException {
+        BPlusTreeNode node = new BPlusTreeNode(allocatePageAddress(), leaf, -1, true);
+        touchIndexNode(node);
+        return node;
+    }
+
+    /**
+     * Marks an index node as recently used, adding it back to the buffer if it had been evicted
+     * @param node the node
+     */
+    public void touchIndexNode(BPlusTreeNode node) throws IOException {
+        synchronized (frames) {
+            if (this.indexPages.get(node.getAddress()) != node) {
+                if (this.bufferSize > 0 && bufferedCount() >= this.bufferSize) {
+                    removeLRUPage();
+                }
+                this.indexPages.put(node.getAddress(), node);
+                replacementPolicy.add(node.getAddress());
+            } else {
+                replacementPolicy.recordAccess(node.getAddress());
+            }
+        }
+    }
+
+    /**
+     * Removes an index node from the buffer and gives its page back to the free space map
+     * @param address the address of the node
+     */
+    public void freeIndexNode(int address) {
+        synchronized (frames) {
+            this.indexPages.remove(address);
+            replacementPolicy.remove(address);
+        }
+        readAhead.invalidate(address);
+        Catalog.getInstance().getFreeSpaceMap().free(address);
+    }
+
+    public BPlusTreeNode readIndexNode(int address, AttributeDefinition keyDefinition) throws IOException {
+        BPlusTreeNode node = this.indexPages.get(address);
+        if (node != null) {
+            recordAccess(address);
+            return node;
+        }
+        ReentrantLock latch = loadLatches[Math.floorMod(address, LOAD_STRIPES)];
+        latch.lock();
         try {
-            Catalog catalog = Catalog.getInstance();
-            // binary output stream to the catalog file
-            FileOutputStream fos = new FileOutputStream(catalog.getCatalogPath());
-            out = new DataOutputStream(fos);
+            node = this.indexPages.get(address);
+            if (node != null) {
+                recordAccess(address);
+                return node;
+            }
+            return decodeIndexNode(address, pageFile.read(address), keyDefinition);
+        } finally {
+            latch.unlock();
+        }
+    }
 
-            // Write global database info first
-            out.writeInt(catalog.getPageSize());
-            // Write start of empty space in file
-            out.writeInt(catalog.getFirstFreeAddress());
-            //Write number of freePages for reading it in
-            LinkedList<Integer> firstFreePage = catalog.getAllFreePages();
-            out.writeInt(firstFreePage.size());
-            for (int i = 0; i<firstFreePage.size(); i++) {
-                out.writeInt(firstFreePage.get(i));
+    private BPlusTreeNode decodeIndexNode(int address, ByteBuffer buffer, AttributeDefinition keyDefinition)
+            throws IOException {
+        BPlusTreeNode node;
+        boolean leaf = buffer.getInt() == 1;
+        int numKeys = buffer.getInt();
+        int nextLeaf = buffer.getInt();
+        node = new BPlusTreeNode(address, leaf, nextLeaf, false);
+        if (!leaf) {
+            node.getPointers().add(buffer.getInt());
+        }
+        for (int i = 0; i < numKeys; i++) {
+            switch (keyDefinition.getType()) {
+                case INTEGER:
+                    node.getKeys().add(buffer.getInt());
+                    break;
+                case DOUBLE:
+                    node.getKeys().add(buffer.getDouble());
+                    break;
+                case BOOLEAN:
+                    node.getKeys().add(buffer.get() == 1);
+                    break;
+                case CHAR:
+                case VARCHAR:
+                    byte[] b = new byte[buffer.getInt()];
+                    buffer.get(b);
+                    node.getKeys().add(new String(b, StandardCharsets.UTF_8));
+                    break;
             }
+            node.getPointers().add(buffer.getInt());
+        }
+        touchIndexNode(node);
+        return node;
+    }
 
-            // Writes how many tables exist in the catalog
-            out.writeInt(catalog.getNumTables());
+    //Do not call buffer manager handles this
+    private void writeIndexNode(BPlusTreeNode node) throws IOException {
+        pageFile.write(node.getAddress(), encodeIndexNode(node));
+        readAhead.invalidate(node.getAddress());
+    }
 
-            // Loops through every table in the catalog
-            for (TableSchema table : catalog.getAllTables()) {
+    /**
+     * Encodes an index node the way it is stored in database.bin
+     */
+    private ByteBuffer encodeIndexNode(BPlusTreeNode node) {
+        ByteBuffer buffer = pageFile.allocate();
+        buffer.putInt(node.isLeaf() ? 1 : 0);
+        buffer.putInt(node.getNumKeys());
+        buffer.putInt(node.getNextLeaf());
+        int pointer = 0;
+        if (!node.isLeaf()) {
+            buffer.putInt(node.getPointers().get(pointer++));
+        }
+        for (Object key : node.getKeys()) {
+            if (key instanceof Integer) {
+                buffer.putInt((int) key);
+            } else if (key instanceof Double) {
+                buffer.putDouble((double) key);
+            } else if (key instanceof Boolean) {
+                buffer.put((byte) ((boolean) key ? 1 : 0));
+            } else {
+                byte[] b = ((String) key).getBytes(StandardCharsets.UTF_8);
+                buffer.putInt(b.length);
+                buffer.put(b);
+            }
+            buffer.putInt(node.getPointers().get(pointer++));
+        }
+        return buffer;
+    }
 
-                // Writes the table name
-                out.writeUTF(table.getTableName());
+    public void saveToDisk() {
+        try (FileOutputStream fos = new FileOutputStream(Catalog.getInstance().getCatalogPath())) {
+            // binary output stream to the catalog file
+            DataOutputStream out = new DataOutputStream(fos);
+            writeCatalog(out);
+            out.flush();
+            // the write ahead log is emptied once the catalog is saved so it has to be on disk
+            fos.getFD().sync();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write catalog to disk", e);
+        }
+    }
 
-                // Writes Page ID (location)
-                out.writeInt(table.getRootPageID());
+    /**
+     * Encodes the catalog the way it is stored in catalog.bin, used to log it with every statement
+     */
+    public byte[] catalogImage() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeCatalog(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
 
-                // Get table attributes
-                List<Attribute> attrs = table.getAttributes();
+    private void writeCatalog(DataOutputStream out) throws IOException {
+        Catalog catalog = Catalog.getInstance();
 
-                // Write how many attributes this table has
-                out.writeInt(attrs.size());
+        // Write global database info first
+        out.writeInt(catalog.getPageSize());
+        // Write start of empty space in file
+        FreeSpaceMap freeSpaceMap = catalog.getFreeSpaceMap();
+        out.writeInt(freeSpaceMap.getEndAddress());
+        //Write the free space bitmap, number of words first for reading it in. The marker sets it apart from the list
+        // of free page addresses older catalogs have in its place
+        long[] bitmap = freeSpaceMap.toLongArray();
+        out.writeInt(FREE_SPACE_BITMAP);
+        out.writeInt(bitmap.length);
+        for (long word : bitmap) {
+            out.writeLong(word);
+        }
 
-                // Loops through each attribute
-                for (Attribute attr : attrs) {
+        // Writes how many tables exist in the catalog
+        out.writeInt(catalog.getNumTables());
 
-                    // Write the attribute name
-                    out.writeUTF(attr.getName());
+        // Loops through every table in the catalog
+        for (TableSchema table : catalog.getAllTables()) {
 
-                    // Get the attribute's definition (type + constraints)
-                    AttributeDefinition def = attr.getDefinition();
+            // Writes the table name
+            out.writeUTF(table.getTableName());
 
-                    // Write the attribute type as an integer code (helper function below)
-                    out.writeInt(getEnumCode(def.getType()));
+            // Writes Page ID (location)
+            out.writeInt(table.getRootPageID());
 
-                    // Write constraints
-                    out.writeBoolean(def.getIsPrimary());
-                    out.writeBoolean(def.getIsPossibleNull());
+            // Get table attributes
+            List<Attribute> attrs = table.getAttributes();
 
-                    // Write max length
-                    if (def.getMaxLength() == null) {
-                        out.writeInt(0); // not applicable
-                    } else {
-                        out.writeInt(def.getMaxLength());
-                    }
+            // Write how many attributes this table has
+            out.writeInt(attrs.size());
 
-                    // Write the default value using a boolean flag
-                    if (attr.getDefaultValue() != null) {
-                        out.writeBoolean(true);           // indicates a default value exists
-                        out.writeUTF(attr.getDefaultValue()); // write the actual string
-                    } else {
-                        out.writeBoolean(false);          // no default value
-                    }
+            // Loops through each attribute
+            for (Attribute attr : attrs) {
+
+                // Write the attribute name
+                out.writeUTF(attr.getName());
+
+                // Get the attribute's definition (type + constraints)
+                AttributeDefinition def = attr.getDefinition();
+
+                // Write the attribute type as an integer code (helper function below)
+                out.writeInt(getEnumCode(def.getType()));
+
+                // Write constraints
+                out.writeBoolean(def.getIsPrimary());
+                out.writeBoolean(def.getIsPossibleNull());
+
+                // Write max length
+                if (def.getMaxLength() == null) {
+                    out.writeInt(0); // not applicable
+                } else {
+                    out.writeInt(def.getMaxLength());
+                }
+
+                // Write the default value using a boolean flag
+                if (attr.getDefaultValue() != null) {
+                    out.writeBoolean(true);           // indicates a default value exists
+                    out.writeUTF(attr.getDefaultValue()); // write the actual string
+                } else {
+                    out.writeBoolean(false);          // no default value
                 }
             }
+        }
 
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to write catalog to disk", e);
+        // Index roots are written after the tables so catalogs from before indexing still load
+        List<TableSchema> indexedTables = new ArrayList<>();
+        for (TableSchema table : catalog.getAllTables()) {
+            if (table.hasIndex()) {
+                indexedTables.add(table);
+            }
+        }
+        out.writeInt(indexedTables.size());
+        for (TableSchema table : indexedTables) {
+            out.writeUTF(table.getTableName());
+            out.writeInt(table.getIndexRootPageID());
+        }
 
-        } finally {
-            // Closes stream always
-            try {
-                if (out != null) {
-                    out.close();
-                }
-            } catch (IOException e) {
-                // Ignores close error
+        // Columnar tables are written last so catalogs from before the columnar layout still load
+        List<String> columnarTables = new ArrayList<>();
+        for (TableSchema table : catalog.getAllTables()) {
+            if (table.isColumnar()) {
+                columnarTables.add(table.getTableName());
             }
         }
+        out.writeInt(columnarTables.size());
+        for (String tableName : columnarTables) {
+            out.writeUTF(tableName);
+        }
     }
 
     public void loadFromDisk() {
@@ -757,10 +1740,20 @@ public class BufferManager {
             catalog.setPageSize(pageSize);
             //Read in start of free space in file
             int firstFreePageAddress = in.readInt();
-            catalog.setFirstFreeAddress(firstFreePageAddress);
+            catalog.getFreeSpaceMap().setEndAddress(firstFreePageAddress);
             int numFree = in.readInt();
-            for (int i = 0; i < numFree; i++) {
-                catalog.addFirstFreePage(in.readInt());
+            if (numFree == FREE_SPACE_BITMAP) {
+                long[] bitmap = new long[in.readInt()];
+                for (int i = 0; i < bitmap.length; i++) {
+                    bitmap[i] = in.readLong();
+                }
+                catalog.getFreeSpaceMap().load(bitmap);
+            } else {
+                // catalogs from before the bitmap list the addresses of the free pages
+                catalog.getFreeSpaceMap().load(new long[0]);
+                for (int i = 0; i < numFree; i++) {
+                    catalog.getFreeSpaceMap().free(in.readInt());
+                }
             }
 
             // Read how many tables are stored
@@ -848,6 +1841,24 @@ public class BufferManager {
                 catalog.addTable(schema);
             }
 
+            // Read index roots if the catalog has them
+            if (in.available() > 0) {
+                int numIndexed = in.readInt();
+                for (int i = 0; i < numIndexed; i++) {
+                    String tableName = in.readUTF();
+                    int indexRoot = in.readInt();
+                    catalog.getTable(tableName).setIndexRootPageID(indexRoot);
+                }
+            }
+
+            // Read columnar tables if the catalog has them
+            if (in.available() > 0) {
+                int numColumnar = in.readInt();
+                for (int i = 0; i < numColumnar; i++) {
+                    catalog.getTable(in.readUTF()).setColumnar(true);
+                }
+            }
+
         } catch (IOException e) {
             throw new RuntimeException("Failed to load catalog from disk", e);
 
@@ -0,0 +1,110 @@
+package StorageManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * CLOCK (second chance) replacement. Every frame has a reference bit that is set when the page is used. The hand
+ * sweeps the frames, clearing set bits, and evicts the first page whose bit is already clear. Accesses only set a
+ * bit so they are cheaper than moving entries around a list.
+ */
+public class ClockReplacementPolicy implements ReplacementPolicy {
+    private final ArrayList<Integer> frames = new ArrayList<>();
+    private final ArrayList<Boolean> referenced = new ArrayList<>();
+    // address -> frame index
+    private final Map<Integer, Integer> frameOf = new HashMap<>();
+    private final LinkedList<Integer> emptyFrames = new LinkedList<>();
+    private int hand = 0;
+
+    @Override
+    public void add(int address) {
+        if (frameOf.containsKey(address)) {
+            recordAccess(address);
+            return;
+        }
+        int frame;
+        if (emptyFrames.isEmpty()) {
+            frame = frames.size();
+            frames.add(address);
+            referenced.add(true);
+        } else {
+            frame = emptyFrames.removeFirst();
+            frames.set(frame, address);
+            referenced.set(frame, true);
+        }
+        frameOf.put(address, frame);
+    }
+
+    /**
+     * The page goes back in the frame evict just emptied, with its reference bit still clear
+     */
+    @Override
+    public void restore(int address) {
+        if (frameOf.containsKey(address)) {
+            return;
+        }
+        int frame;
+        if (emptyFrames.isEmpty()) {
+            frame = frames.size();
+            frames.add(address);
+            referenced.add(false);
+        } else {
+            frame = emptyFrames.removeLast();
+            frames.set(frame, address);
+            referenced.set(frame, false);
+        }
+        frameOf.put(address, frame);
+    }
+
+    @Override
+    public void recordAccess(int address) {
+        Integer frame = frameOf.get(address);
+        if (frame != null) {
+            referenced.set(frame, true);
+        }
+    }
+
+    @Override
+    public void remove(int address) {
+        Integer frame = frameOf.remove(address);
+        if (frame != null) {
+            frames.set(frame, null);
+            emptyFrames.add(frame);
+        }
+    }
+
+    @Override
+    public Integer evict() {
+        if (frameOf.isEmpty()) {
+            return null;
+        }
+        // at most two sweeps, the first one may only clear bits
+        while (true) {
+            if (hand >= frames.size()) {
+                hand = 0;
+            }
+            Integer address = frames.get(hand);
+            if (address != null) {
+                if (referenced.get(hand)) {
+                    referenced.set(hand, false);
+                } else {
+                    remove(address);
+                    hand++;
+                    return address;
+                }
+            }
+            hand++;
+        }
+    }
+
+    @Override
+    public void clear() {
+        frames.clear();
+        referenced.clear();
+        frameOf.clear();
+        emptyFrames.clear();
+        hand = 0;
+    }
+}
@@ -0,0 +1,44 @@
+package StorageManager;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Least recently used replacement. An access ordered LinkedHashMap keeps the pages from least to most recently
+ * used, so every operation is O(1).
+ */
+public class LRUReplacementPolicy implements ReplacementPolicy {
+    private final LinkedHashMap<Integer, Boolean> pages = new LinkedHashMap<>(16, 0.75f, true);
+
+    @Override
+    public void add(int address) {
+        pages.put(address, Boolean.TRUE);
+    }
+
+    @Override
+    public void recordAccess(int address) {
+        // get moves the entry to the most recently used end
+        pages.get(address);
+    }
+
+    @Override
+    public void remove(int address) {
+        pages.remove(address);
+    }
+
+    @Override
+    public Integer evict() {
+        Iterator<Integer> iterator = pages.keySet().iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        Integer victim = iterator.next();
+        iterator.remove();
+        return victim;
+    }
+
+    @Override
+    public void clear() {
+        pages.clear();
+    }
+}
@@ -0,0 +1,184 @@
+package StorageManager;
+
+import Catalog.Catalog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Page level access to database.bin. One FileChannel is kept open for the life of the database and every page is
+ * read or written as a single ByteBuffer at its address, so a page costs one system call instead of one per field.
+ * In memory mapped mode reads come straight from MappedByteBuffer segments of the file and the OS page cache does
+ * the buffering, writes still go through the channel which shares that cache.
+ */
+public class PageFile {
+    // target size of a mapped segment, rounded down to whole pages so a page never spans two segments
+    private static final int SEGMENT_BYTES = 1 << 24;
+
+    private final String location;
+    private final boolean memoryMapped;
+    private FileChannel channel;
+    // segment number -> mapping, a segment is remapped when the file has grown past the end of its mapping. Pages
+    // are read by several threads at once, a segment is mapped by one of them while the others wait
+    private final Map<Integer, MappedByteBuffer> segments;
+
+    public PageFile(String location) {
+        this(location, false);
+    }
+
+    public PageFile(String location, boolean memoryMapped) {
+        this.location = location;
+        this.memoryMapped = memoryMapped;
+        this.segments = new ConcurrentHashMap<>();
+    }
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    private synchronized FileChannel getChannel() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(Paths.get(location), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return channel;
+    }
+
+    /**
+     * Creates a zeroed buffer the size of a page. The page size comes from the catalog since it can change when
+     * an existing database is loaded
+     */
+    public ByteBuffer allocate() {
+        return ByteBuffer.allocate(Catalog.getInstance().getPageSize());
+    }
+
+    /**
+     * Reads a whole page. Bytes past the end of the file are left as zeros
+     * @param address the address of the page
+     * @return a buffer holding the page, positioned at 0
+     */
+    public ByteBuffer read(int address) throws IOException {
+        if (memoryMapped) {
+            ByteBuffer page = readMapped(address);
+            if (page != null) {
+                return page;
+            }
+        }
+        ByteBuffer buffer = allocate();
+        FileChannel fileChannel = getChannel();
+        long position = address;
+        while (buffer.hasRemaining()) {
+            int read = fileChannel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Reads a run of physically adjacent pages with one call, used by read-ahead. Bytes past the end of the file are
+     * left as zeros. Safe to call from another thread while pages are written
+     * @param address the address of the first page
+     * @param pages the number of pages
+     * @return a buffer holding the pages one after another, positioned at 0
+     */
+    public ByteBuffer read(int address, int pages) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Catalog.getInstance().getPageSize() * pages);
+        FileChannel fileChannel = getChannel();
+        long position = address;
+        while (buffer.hasRemaining()) {
+            int read = fileChannel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Gets a page as a read only view of its mapped segment, nothing is copied
+     * @param address the address of the page
+     * @return the page or null if the page is past the end of the file
+     */
+    private ByteBuffer readMapped(int address) throws IOException {
+        int pageSize = Catalog.getInstance().getPageSize();
+        int segmentSize = Math.max(1, SEGMENT_BYTES / pageSize) * pageSize;
+        int segmentNumber = address / segmentSize;
+        long segmentStart = (long) segmentNumber * segmentSize;
+        int offset = (int) (address - segmentStart);
+
+        MappedByteBuffer segment = segments.get(segmentNumber);
+        if (segment == null || segment.capacity() < offset + pageSize) {
+            FileChannel fileChannel = getChannel();
+            try {
+                segment = segments.compute(segmentNumber, (number, mapped) -> {
+                    // another thread may have mapped the page while this one waited
+                    if (mapped != null && mapped.capacity() >= offset + pageSize) {
+                        return mapped;
+                    }
+                    try {
+                        long length = Math.min(segmentSize, fileChannel.size() - segmentStart);
+                        if (length < offset + pageSize) {
+                            return mapped;
+                        }
+                        return fileChannel.map(FileChannel.MapMode.READ_ONLY, segmentStart, length);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (segment == null || segment.capacity() < offset + pageSize) {
+                return null;
+            }
+        }
+        return segment.slice(offset, pageSize);
+    }
+
+    /**
+     * Writes a whole page
+     * @param address the address of the page
+     * @param buffer the page contents, the whole buffer is written
+     */
+    public void write(int address, ByteBuffer buffer) throws IOException {
+        FileChannel fileChannel = getChannel();
+        buffer.clear();
+        long position = address;
+        while (buffer.hasRemaining()) {
+            position += fileChannel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Forces every write so far to disk
+     */
+    public void force() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Closes the channel, it is reopened if the file is used again
+     */
+    public synchronized void close() throws IOException {
+        segments.clear();
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
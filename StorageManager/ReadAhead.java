@@ -0,0 +1,200 @@
+package StorageManager;
+
+import Catalog.Catalog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-ahead for scans that follow a page chain. When the buffer manager sees a table's pages being selected in
+ * chain order the next DEPTH pages of the chain are read on a background thread and staged here, so a cold scan
+ * waits on disk bandwidth instead of one read per page. Pages that are physically adjacent in database.bin, which
+ * the extents of the free space map make the common case, are read with a single call.
+ * Staged pages are raw page images, the buffer manager decodes one when the page is read and nothing is staged for
+ * pages that are already buffered. The background thread only reads the file, the buffer is never touched from it.
+ * A page written while it is staged or being read is dropped so a stale image is never handed out.
+ */
+class ReadAhead {
+    // pages read ahead of the scan
+    static final int DEPTH = 16;
+    // staged pages that were never used are dropped oldest first past this many
+    private static final int CAPACITY = DEPTH * 2;
+    // offset of the next page address in the page header, which is numRows, freeSpaceStart, freeSpaceEnd, nextPage
+    private static final int NEXT_PAGE = Integer.BYTES * 3;
+
+    private final PageFile pageFile;
+    private final Map<Integer, ByteBuffer> staged;
+    // pages written while the background thread is reading, guarded by this
+    private final Set<Integer> written;
+    private boolean reading;
+    private ExecutorService reader;
+    private Future<?> pending;
+
+    // chain scan detection for each thread running statements, the next page expected and the pages so far
+    private final ThreadLocal<int[]> scans = ThreadLocal.withInitial(() -> new int[]{-1, 0});
+    // changes when a new scan starts, a read for an earlier scan stops early
+    private volatile int scan;
+
+    ReadAhead(PageFile pageFile) {
+        this.pageFile = pageFile;
+        this.staged = new LinkedHashMap<>(CAPACITY, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, ByteBuffer> eldest) {
+                return size() > CAPACITY;
+            }
+        };
+        this.written = new HashSet<>();
+    }
+
+    /**
+     * Takes the staged image of a page
+     * @param address the address of the page
+     * @return the page as it is in database.bin, or null if it was not read ahead
+     */
+    synchronized ByteBuffer take(int address) {
+        return staged.remove(address);
+    }
+
+    /**
+     * Drops the staged image of a page, must be called whenever the page is written or freed
+     * @param address the address of the page
+     */
+    synchronized void invalidate(int address) {
+        staged.remove(address);
+        if (reading) {
+            written.add(address);
+        }
+    }
+
+    /**
+     * Called for every data page a statement selects. Two pages selected in chain order start a scan, from then
+     * on the chain is read ahead whenever fewer than half of DEPTH pages of it are staged ahead of the scan
+     * @param address the address of the page
+     * @param nextAddress the next page in the chain, -1 at the end of the table
+     * @param nextBuffered whether the next page is already in the buffer
+     */
+    synchronized void pageSelected(int address, int nextAddress, boolean nextBuffered) {
+        int[] thisScan = scans.get();
+        if (address == thisScan[0]) {
+            thisScan[1]++;
+        } else {
+            thisScan[1] = 0;
+            scan++;
+        }
+        thisScan[0] = nextAddress;
+        if (thisScan[1] == 0 || nextAddress == -1 || nextBuffered || pageFile.isMemoryMapped()) {
+            return;
+        }
+        if (pending != null && !pending.isDone()) {
+            return;
+        }
+        // follow the chain through the staged pages, the read starts where they stop
+        int start = nextAddress;
+        int ahead = 0;
+        ByteBuffer image;
+        while (start != -1 && ahead < DEPTH / 2 && (image = staged.get(start)) != null) {
+            start = image.getInt(NEXT_PAGE);
+            ahead++;
+        }
+        if (start == -1 || ahead >= DEPTH / 2) {
+            return;
+        }
+        if (reader == null) {
+            reader = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "read-ahead");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        int from = start;
+        int forScan = scan;
+        pending = reader.submit(() -> readChain(from, forScan));
+    }
+
+    /**
+     * Reads DEPTH pages of a chain on the background thread. A read covers as many pages after the current one as
+     * were in chain order in the previous read, twice over, so a chain laid out in order is read in a few large
+     * calls and a scattered one costs little more than reading page by page
+     * @param start the address of the first page to read
+     * @param forScan the scan the pages are read for
+     */
+    private void readChain(int start, int forScan) {
+        int pageSize = Catalog.getInstance().getPageSize();
+        int address = start;
+        int remaining = DEPTH;
+        int runPages = DEPTH;
+        try {
+            while (address != -1 && remaining > 0 && forScan == scan) {
+                int pages = Math.min(runPages, remaining);
+                synchronized (this) {
+                    reading = true;
+                    written.clear();
+                }
+                ByteBuffer run = pageFile.read(address, pages);
+                List<Integer> addresses = new ArrayList<>();
+                List<ByteBuffer> images = new ArrayList<>();
+                int used = 0;
+                int next = address;
+                while (used < pages && next == address + used * pageSize) {
+                    // copied so a buffered page does not hold on to the whole run
+                    ByteBuffer image = ByteBuffer.allocate(pageSize).put(run.slice(used * pageSize, pageSize));
+                    image.clear();
+                    addresses.add(next);
+                    images.add(image);
+                    next = image.getInt(NEXT_PAGE);
+                    used++;
+                }
+                synchronized (this) {
+                    reading = false;
+                    for (int i = 0; i < addresses.size(); i++) {
+                        if (!written.contains(addresses.get(i))) {
+                            staged.put(addresses.get(i), images.get(i));
+                        }
+                    }
+                }
+                remaining -= used;
+                runPages = used * 2;
+                address = next;
+            }
+        } catch (IOException e) {
+            // read-ahead is only a hint, the page is read again when it is selected
+        } finally {
+            synchronized (this) {
+                reading = false;
+            }
+        }
+    }
+
+    /**
+     * Waits for the background read and drops everything staged, called before the database file is closed
+     */
+    void shutdown() {
+        ExecutorService reader;
+        synchronized (this) {
+            reader = this.reader;
+            this.reader = null;
+            pending = null;
+        }
+        if (reader != null) {
+            reader.shutdown();
+            try {
+                reader.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            staged.clear();
+        }
+    }
+}
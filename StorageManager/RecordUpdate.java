@@ -0,0 +1,14 @@
+package StorageManager;
+
+import java.util.ArrayList;
+
+/**
+ * The change an UPDATE makes to a record
+ */
+public interface RecordUpdate {
+    /**
+     * @param record the record as it is in the table, it must not be changed
+     * @return the updated record, or null if this record is not updated
+     */
+    ArrayList<Object> apply(ArrayList<Object> record) throws Exception;
+}
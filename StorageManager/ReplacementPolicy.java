@@ -0,0 +1,67 @@
+package StorageManager;
+
+/**
+ * Decides which frame of the buffer is evicted when the buffer is full. Frames are identified by the address of
+ * the page or index node they hold. The BufferManager tells the policy when a frame is added, used or dropped and
+ * asks it for a victim when it needs room.
+ */
+public interface ReplacementPolicy {
+
+    /**
+     * Called when a page is brought into the buffer
+     * @param address the address of the page
+     */
+    void add(int address);
+
+    /**
+     * Called every time a buffered page is used. Addresses that are not in the buffer are ignored
+     * @param address the address of the page
+     */
+    void recordAccess(int address);
+
+    /**
+     * Called when a page leaves the buffer without being chosen as a victim, e.g. when it is freed
+     * @param address the address of the page
+     */
+    void remove(int address);
+
+    /**
+     * Puts back a victim returned by evict that could not be evicted because it is pinned or latched. The page is
+     * tracked again without counting as a use, a policy that promotes pages used more than once must not promote
+     * it. LRU puts it back as the most recently used page
+     * @param address the address of the page
+     */
+    default void restore(int address) {
+        add(address);
+    }
+
+    /**
+     * Picks the page to evict and stops tracking it
+     * @return the address of the victim, or null if no pages are tracked
+     */
+    Integer evict();
+
+    /**
+     * Forgets every page, used when the whole buffer is flushed
+     */
+    void clear();
+
+    /**
+     * Creates a policy from its name
+     * @param name lru, clock or 2q
+     * @param capacity the number of frames in the buffer
+     * @return the policy
+     */
+    static ReplacementPolicy create(String name, int capacity) {
+        switch (name.toLowerCase()) {
+            case "lru":
+                return new LRUReplacementPolicy();
+            case "clock":
+                return new ClockReplacementPolicy();
+            case "2q":
+                return new TwoQueueReplacementPolicy(capacity);
+            default:
+                throw new IllegalArgumentException("Unknown buffer replacement policy: " + name);
+        }
+    }
+}
@@ -4,14 +4,18 @@ import AttributeInfo.Attribute;
 import AttributeInfo.IntegerDefinition;
 import Common.Command;
 import Common.Page;
+import Common.Where.ICompiledWhere;
 import Catalog.Catalog;
 import Catalog.TableSchema;
+import Catalog.ZoneMaps;
 import java.io.File;
 import java.io.IOException;
 import java.sql.SQLSyntaxErrorException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
 
 import Common.Logger;
 import DDLParser.AlterTableDrop;
@@ -20,32 +24,115 @@ import DMLParser.ParserDML;
 
 
 public class StorageManager {
-    private static StorageManager storageManager;
+    private static volatile StorageManager storageManager;
     private String dbPath = "";
     private String databaseFilePath = "";
+    // commits per sync of the write ahead log and the longest a commit waits for its sync, in milliseconds
+    public static final int DEFAULT_GROUP_COMMIT = 8;
+    private static final long GROUP_COMMIT_DELAY = 20;
+    // the buffer is checkpointed once the write ahead log grows past this many bytes
+    private static final long CHECKPOINT_BYTES = 8 * 1024 * 1024;
+    private final WriteAheadLog writeAheadLog;
 
 
     public void CreateTable(TableSchema table) throws Exception {
         Catalog catalog = Catalog.getInstance();
-        int firstFreePage;
-        if (catalog.hasFreePages()) {
-            firstFreePage = catalog.getFirstFreePage();
-            catalog.removeFirstFreePage();
-        } else {
-            // Start at page 0 for first table, or use page size increments
-//            firstFreePage = catalog.getNumTables() * catalog.getPageSize();
-            if(catalog.getNumTables() == 0){
-                firstFreePage = 0;
-            } else {
-                firstFreePage = catalog.getFirstFreeAddress();
-            }
-        }
+        BufferManager bufferManager = BufferManager.getInstance();
+        // The first page is a single page, the table gets an extent once it grows past it
+        int firstFreePage = bufferManager.allocateFirstPage();
         table.setRootPageID(firstFreePage);
         // Add table to catalog BEFORE creating the page so writePage can find it
         catalog.addTable(table);
-        BufferManager bufferManager = BufferManager.getInstance();
         //buffer manager creates the new page
         bufferManager.newPage(firstFreePage, table.getTableName());
+        if (bufferManager.shouldIndex(table)) {
+            new BPlusTree(table).create();
+        }
+    }
+
+    /**
+     * Makes sure a table has its primary key index, building it from the table if it is missing. Used when
+     * a temporary table is renamed into a real table.
+     * @param tableName the name of the table
+     */
+    public void ensureIndex(String tableName) throws Exception {
+        BufferManager bufferManager = BufferManager.getInstance();
+        TableSchema table = Catalog.getInstance().getTable(tableName);
+        if (!table.hasIndex() && bufferManager.shouldIndex(table)) {
+            bufferManager.buildIndex(tableName);
+        }
+    }
+
+    /**
+     * Finds the page holding a primary key value using the table's index
+     * @param tableName the name of the table
+     * @param primaryKey the primary key value
+     * @return the page holding the key, or null if the key is not in the table
+     * @throws Exception if the table is not indexed or there is an issue reading the page
+     */
+    public Page selectByPrimaryKey(String tableName, Object primaryKey) throws Exception {
+        Integer address = primaryKeyAddress(tableName, primaryKey);
+        if (address == null) {
+            return null;
+        }
+        return BufferManager.getInstance().select(address, tableName);
+    }
+
+    /**
+     * Finds and pins the page holding a primary key value using the table's index, see selectByPrimaryKey
+     * @return the pinned page, or null if the key is not in the table
+     */
+    public Page pinByPrimaryKey(String tableName, Object primaryKey) throws Exception {
+        Integer address = primaryKeyAddress(tableName, primaryKey);
+        if (address == null) {
+            return null;
+        }
+        return BufferManager.getInstance().pin(address, tableName);
+    }
+
+    private Integer primaryKeyAddress(String tableName, Object primaryKey) throws Exception {
+        BPlusTree index = BufferManager.getInstance().getIndex(tableName);
+        if (index == null) {
+            throw new Exception("Table " + tableName + " is not indexed");
+        }
+        return index.search(primaryKey);
+    }
+
+    /**
+     * Checks if a primary key value is already in a table using the table's index
+     * @param tableName the name of the table
+     * @param primaryKey the primary key value
+     * @return true if a record with the key exists
+     * @throws Exception if the table is not indexed or there is an issue reading the index
+     */
+    public boolean primaryKeyExists(String tableName, Object primaryKey) throws Exception {
+        BPlusTree index = BufferManager.getInstance().getIndex(tableName);
+        if (index == null) {
+            throw new Exception("Table " + tableName + " is not indexed");
+        }
+        return index.search(primaryKey) != null;
+    }
+
+    /**
+     * Gives the pages of a table that are in the buffer a new table name
+     * @param oldTableName the name the pages have
+     * @param newTableName the name they get
+     */
+    public void renameBufferedPages(String oldTableName, String newTableName) {
+        BufferManager.getInstance().renameBufferedPages(oldTableName, newTableName);
+    }
+
+    /**
+     * Gets the zone maps of a table, the ranges of values of its pages that filtered scans pass over pages with
+     * @param tableName the name of the table
+     * @return the zone maps, or null if the table does not exist
+     */
+    public ZoneMaps getZoneMaps(String tableName) {
+        return BufferManager.getInstance().getZoneMaps(tableName);
+    }
+
+    public boolean hasIndex(String tableName) {
+        return BufferManager.getInstance().getIndex(tableName) != null;
     }
 
     public void DropTable(TableSchema table) throws Exception {
@@ -59,16 +146,68 @@ public class StorageManager {
         BufferManager bufferManager = BufferManager.getInstance();
         System.out.println("Purging buffer...");
         bufferManager.flushAllPages();
+        bufferManager.close();
         System.out.println("Writing catalog to hardware...");
         bufferManager.saveToDisk();
+        // everything in the log is in the database files now
+        writeAheadLog.truncate();
+        writeAheadLog.close();
     }
-    public void bootup() {
+
+    /**
+     * Makes the changes of the statement that just ran durable by writing the pages it changed to the write ahead
+     * log. The log is synced with group commit so a crash can lose the last few statements. Statements that
+     * changed nothing write nothing.
+     */
+    public void commit() throws IOException {
         BufferManager bufferManager = BufferManager.getInstance();
+        bufferManager.logChanges();
+        if (!writeAheadLog.hasUncommitted()) {
+            return;
+        }
+        writeAheadLog.commit(bufferManager.catalogImage());
+        if (writeAheadLog.size() > CHECKPOINT_BYTES) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Writes the buffer and catalog to the database files so the write ahead log can be emptied
+     */
+    public void checkpoint() throws IOException {
+        Logger.log("Checkpoint, writing the buffer to disk");
+        BufferManager bufferManager = BufferManager.getInstance();
+        writeAheadLog.sync();
+        bufferManager.checkpoint();
+        bufferManager.saveToDisk();
+        writeAheadLog.truncate();
+    }
+
+    public void bootup() throws Exception {
+        BufferManager bufferManager = BufferManager.getInstance();
+        // statements committed before a crash are copied from the log into the database files first
+        int recovered = bufferManager.recover();
+        if (recovered > 0) {
+            System.out.println("Recovered " + recovered + " statement(s) from the write ahead log");
+        }
         bufferManager.loadFromDisk();
+        // Indexes are built for tables that do not have one yet, and dropped if indexing was turned off since
+        // they would go stale
+        Catalog catalog = Catalog.getInstance();
+        for (TableSchema table : new ArrayList<>(catalog.getAllTables())) {
+            if (bufferManager.isIndexing()) {
+                ensureIndex(table.getTableName());
+            } else if (table.hasIndex()) {
+                Logger.log("Indexing is off, dropping index of " + table.getTableName());
+                new BPlusTree(table).drop();
+            }
+        }
     }
 
-    private StorageManager(String dbPath, int pageSize, int bufferSize) throws Exception {
+    private StorageManager(String dbPath, int pageSize, int bufferSize, boolean indexing,
+                           String replacementPolicy, boolean memoryMapped, int groupCommit) throws Exception {
         this.dbPath = dbPath;
+        this.writeAheadLog = new WriteAheadLog(dbPath, groupCommit, GROUP_COMMIT_DELAY);
 
         Logger.log("db path is " + dbPath);
 
@@ -111,17 +250,55 @@ public class StorageManager {
         Catalog.init(dbPath, pageSize);
 
         // Initialize BufferManager
-        BufferManager.init(bufferSize, dbPath + File.separator + "database.bin");
+        BufferManager.init(bufferSize, dbPath + File.separator + "database.bin", indexing,
+                ReplacementPolicy.create(replacementPolicy, bufferSize), memoryMapped);
+        BufferManager.getInstance().setWriteAheadLog(writeAheadLog);
     }
 
     // Updated to accept parameters needed for the constructor
-    private static void createStorageManager(String dbPath, int pageSize, int bufferSize) throws Exception {
-        storageManager = new StorageManager(dbPath, pageSize, bufferSize);
+    private static void createStorageManager(String dbPath, int pageSize, int bufferSize, boolean indexing,
+                                             String replacementPolicy, boolean memoryMapped, int groupCommit)
+            throws Exception {
+        storageManager = new StorageManager(dbPath, pageSize, bufferSize, indexing, replacementPolicy, memoryMapped,
+                groupCommit);
     }
 
     public static void initDatabase(String dbPath, int pageSize, int bufferSize) throws Exception {
+        initDatabase(dbPath, pageSize, bufferSize, false);
+    }
+
+    public static void initDatabase(String dbPath, int pageSize, int bufferSize, boolean indexing) throws Exception {
+        initDatabase(dbPath, pageSize, bufferSize, indexing, "lru");
+    }
+
+    /**
+     * @param replacementPolicy the buffer replacement policy, lru, clock or 2q
+     */
+    public static void initDatabase(String dbPath, int pageSize, int bufferSize, boolean indexing,
+                                    String replacementPolicy) throws Exception {
+        initDatabase(dbPath, pageSize, bufferSize, indexing, replacementPolicy, false);
+    }
+
+    /**
+     * @param replacementPolicy the buffer replacement policy, lru, clock or 2q
+     * @param memoryMapped whether pages are read from a memory mapping of database.bin
+     */
+    public static void initDatabase(String dbPath, int pageSize, int bufferSize, boolean indexing,
+                                    String replacementPolicy, boolean memoryMapped) throws Exception {
+        initDatabase(dbPath, pageSize, bufferSize, indexing, replacementPolicy, memoryMapped, DEFAULT_GROUP_COMMIT);
+    }
+
+    /**
+     * @param replacementPolicy the buffer replacement policy, lru, clock or 2q
+     * @param memoryMapped whether pages are read from a memory mapping of database.bin
+     * @param groupCommit how many statements share one sync of the write ahead log
+     */
+    public static synchronized void initDatabase(String dbPath, int pageSize, int bufferSize, boolean indexing,
+                                                 String replacementPolicy, boolean memoryMapped, int groupCommit)
+            throws Exception {
         if (storageManager == null){
-            createStorageManager(dbPath, pageSize, bufferSize);
+            createStorageManager(dbPath, pageSize, bufferSize, indexing, replacementPolicy, memoryMapped,
+                    groupCommit);
         }
     }
 
@@ -130,6 +307,13 @@ public class StorageManager {
         return storageManager;
     }
 
+    /**
+     * @return the directory the database files are kept in
+     */
+    public String getDbPath() {
+        return dbPath;
+    }
+
     /**
      * Returns the first page associated with a table based on the provided table name.
      * This method assumes that tableName is a valid table
@@ -160,6 +344,37 @@ public class StorageManager {
         return bufferManager.select(address, tableName);
     }
 
+    /**
+     * Returns the first page of a table pinned in the buffer, see selectFirstPage
+     * @param tableName The name of the table to select from
+     * @return the pinned page
+     */
+    public Page pinFirstPage(String tableName) throws Exception {
+        Catalog catalog = Catalog.getInstance();
+        if(!catalog.tableExists(tableName)){
+            throw new Exception("Table " + tableName + " does not exist");
+        }
+        return BufferManager.getInstance().pin(catalog.getAddressOfPage(tableName), tableName);
+    }
+
+    /**
+     * Returns a page pinned in the buffer, it is not evicted until it is unpinned
+     * @param address Address of the page
+     * @param tableName Name of the table
+     * @return the pinned page
+     */
+    public Page pin(int address, String tableName) throws Exception {
+        return BufferManager.getInstance().pin(address, tableName);
+    }
+
+    /**
+     * Releases a page returned by one of the pin methods
+     * @param page the page
+     */
+    public void unpin(Page page) {
+        BufferManager.getInstance().unpin(page);
+    }
+
     public Integer insert(String tableName, List<List<Object>> rows, int pageAddress) throws Exception {
         BufferManager bufferManager = BufferManager.getInstance();
         int nextAddress = bufferManager.insert(tableName, rows, pageAddress);
@@ -174,6 +389,56 @@ public class StorageManager {
         return nextAddress;
     }
 
+    /**
+     * Inserts a batch of rows sorted on the primary key, packing them into pages in one pass over the table
+     * @param tableName the name of the table
+     * @param rows the rows in primary key order, none of their keys may be in the table yet
+     * @return Address of the page the last row was inserted into
+     */
+    public Integer bulkInsert(String tableName, List<List<Object>> rows) throws Exception {
+        return BufferManager.getInstance().bulkInsert(tableName, rows);
+    }
+
+    /**
+     * Finds which of a sorted list of primary key values are already in a table
+     * @param tableName the name of the table
+     * @param sortedKeys primary key values in ascending order
+     * @return the keys that are in the table
+     */
+    public Set<Object> existingKeys(String tableName, List<Object> sortedKeys) throws Exception {
+        return BufferManager.getInstance().existingKeys(tableName, sortedKeys);
+    }
+
+    /**
+     * Deletes the records of a table that match a condition, the pages are changed in place
+     * @param tableName the name of the table
+     * @param condition true for the records to delete
+     * @return the number of records deleted
+     */
+    public int delete(String tableName, Predicate<ArrayList<Object>> condition) throws Exception {
+        return BufferManager.getInstance().delete(tableName, condition);
+    }
+
+    /**
+     * Deletes the records of a table that satisfy a where clause, the pages are changed in place
+     * @param tableName the name of the table
+     * @param condition the compiled where clause, or null to delete every record
+     * @return the number of records deleted
+     */
+    public int deleteWhere(String tableName, ICompiledWhere condition) throws Exception {
+        return BufferManager.getInstance().deleteWhere(tableName, condition);
+    }
+
+    /**
+     * Updates the records of a table in place, the primary key of a record must not change
+     * @param tableName the name of the table
+     * @param update the change to make to each record
+     * @return the number of records updated
+     */
+    public int update(String tableName, RecordUpdate update) throws Exception {
+        return BufferManager.getInstance().update(tableName, update);
+    }
+
     public Integer heapInsert(String tableName, List<List<Object>> rows, int pageAddress) throws Exception {
         BufferManager bufferManager = BufferManager.getInstance();
         int nextAddress = bufferManager.heapInsert(tableName, rows, pageAddress);
@@ -0,0 +1,91 @@
+package StorageManager;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+
+/**
+ * 2Q replacement, an O(1) approximation of LRU-2. Pages seen once go in a FIFO queue (A1in) and are evicted from
+ * there first. The addresses of pages evicted from A1in are remembered in a ghost queue (A1out), if one of them is
+ * read again it has been used twice and goes in the LRU queue of hot pages (Am).
+ * A large scan only passes through A1in, so it can not push the hot pages out of the buffer.
+ */
+public class TwoQueueReplacementPolicy implements ReplacementPolicy {
+    private final LinkedHashSet<Integer> a1in = new LinkedHashSet<>();
+    private final LinkedHashSet<Integer> a1out = new LinkedHashSet<>();
+    private final LinkedHashMap<Integer, Boolean> am = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxA1in;
+    private final int maxA1out;
+
+    public TwoQueueReplacementPolicy(int capacity) {
+        // sizes suggested by the 2Q paper, a quarter of the buffer for new pages and ghosts for half of it
+        this.maxA1in = Math.max(1, capacity / 4);
+        this.maxA1out = Math.max(1, capacity / 2);
+    }
+
+    @Override
+    public void add(int address) {
+        if (a1in.contains(address) || am.containsKey(address)) {
+            recordAccess(address);
+        } else if (a1out.remove(address)) {
+            am.put(address, Boolean.TRUE);
+        } else {
+            a1in.add(address);
+        }
+    }
+
+    /**
+     * A page passed over from A1in goes back to the new end of A1in instead of being promoted out of A1out, a page
+     * passed over from Am goes back to the most recently used end of Am
+     */
+    @Override
+    public void restore(int address) {
+        if (a1out.remove(address)) {
+            a1in.add(address);
+        } else {
+            am.put(address, Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public void recordAccess(int address) {
+        // pages in A1in stay where they are, repeated use right after a read is still one use
+        am.get(address);
+    }
+
+    @Override
+    public void remove(int address) {
+        a1in.remove(address);
+        am.remove(address);
+        a1out.remove(address);
+    }
+
+    @Override
+    public Integer evict() {
+        if (!a1in.isEmpty() && (a1in.size() > maxA1in || am.isEmpty())) {
+            Integer victim = removeFirst(a1in.iterator());
+            a1out.add(victim);
+            if (a1out.size() > maxA1out) {
+                removeFirst(a1out.iterator());
+            }
+            return victim;
+        }
+        if (!am.isEmpty()) {
+            return removeFirst(am.keySet().iterator());
+        }
+        return null;
+    }
+
+    private Integer removeFirst(Iterator<Integer> iterator) {
+        Integer first = iterator.next();
+        iterator.remove();
+        return first;
+    }
+
+    @Override
+    public void clear() {
+        a1in.clear();
+        a1out.clear();
+        am.clear();
+    }
+}
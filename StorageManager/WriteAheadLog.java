@@ -0,0 +1,282 @@
+package StorageManager;
+
+import Common.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Redo log kept in wal.log next to database.bin. After every statement the pages it changed are appended as whole
+ * page images together with an image of the catalog, followed by a commit record. Pages the buffer evicts while the
+ * statement runs are logged as they are evicted, and the log is forced to disk before such a page is written to
+ * database.bin. Other pages stay dirty in the buffer, database.bin and catalog.bin are only brought up to date at a
+ * checkpoint or on shutdown.
+ * Group commit: the log is written when a statement commits but only synced to disk once every groupSize commits,
+ * or groupDelay milliseconds after the first commit that is not synced yet, so many statements share one fsync.
+ * On bootup the images of every committed statement are copied into database.bin and catalog.bin, images after the
+ * last commit record and records cut off by a crash are ignored.
+ * Only redo is logged, a statement cut off by a crash is not undone so pages the buffer evicted while it ran keep
+ * its changes.
+ * Record format: type byte, payload length, payload, CRC32 of the payload.
+ */
+public class WriteAheadLog {
+    public static final String FILE_NAME = "wal.log";
+
+    private static final byte PAGE = 1;
+    private static final byte CATALOG = 2;
+    private static final byte COMMIT = 3;
+    // records are collected in memory and written once this many bytes are waiting or the statement commits
+    private static final int WRITE_BYTES = 1 << 20;
+
+    private final String location;
+    private final int groupSize;
+    private final long groupDelay;
+    private FileChannel channel;
+    private final ByteArrayOutputStream pending;
+    private boolean uncommitted;
+    private int unsynced;
+    // bytes were written to the channel since it was last forced
+    private boolean unforced;
+    private ScheduledExecutorService syncer;
+    private ScheduledFuture<?> pendingSync;
+
+    /**
+     * @param dbPath the database directory
+     * @param groupSize number of commits that share one sync
+     * @param groupDelay longest time in milliseconds a commit waits to be synced
+     */
+    public WriteAheadLog(String dbPath, int groupSize, long groupDelay) {
+        this.location = dbPath + File.separator + FILE_NAME;
+        this.groupSize = Math.max(1, groupSize);
+        this.groupDelay = groupDelay;
+        this.pending = new ByteArrayOutputStream();
+    }
+
+    private FileChannel getChannel() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(Paths.get(location), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        }
+        return channel;
+    }
+
+    /**
+     * @return the size of the log in bytes
+     */
+    public synchronized long size() throws IOException {
+        return getChannel().size();
+    }
+
+    private void append(byte type, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        DataOutputStream out = new DataOutputStream(pending);
+        out.writeByte(type);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.writeInt((int) crc.getValue());
+        if (pending.size() >= WRITE_BYTES) {
+            write();
+        }
+    }
+
+    private void write() throws IOException {
+        if (pending.size() == 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(pending.toByteArray());
+        FileChannel fileChannel = getChannel();
+        while (buffer.hasRemaining()) {
+            fileChannel.write(buffer);
+        }
+        pending.reset();
+        unforced = true;
+    }
+
+    /**
+     * Logs the new contents of a page for the statement that is running
+     * @param address the address of the page
+     * @param image the page as it is stored in database.bin
+     */
+    public synchronized void logPage(int address, ByteBuffer image) throws IOException {
+        byte[] payload = new byte[Integer.BYTES + image.capacity()];
+        ByteBuffer.wrap(payload).putInt(address).put(image.duplicate().clear());
+        append(PAGE, payload);
+        uncommitted = true;
+    }
+
+    /**
+     * @return true if pages were logged since the last commit
+     */
+    public synchronized boolean hasUncommitted() {
+        return uncommitted;
+    }
+
+    /**
+     * Writes the commit record of the running statement
+     * @param catalog the catalog as it is written to catalog.bin
+     */
+    public synchronized void commit(byte[] catalog) throws IOException {
+        append(CATALOG, catalog);
+        append(COMMIT, new byte[0]);
+        write();
+        uncommitted = false;
+        unsynced++;
+        if (unsynced >= groupSize) {
+            sync();
+        } else if (pendingSync == null) {
+            if (syncer == null) {
+                syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "wal-sync");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            pendingSync = syncer.schedule(() -> {
+                try {
+                    sync();
+                } catch (IOException e) {
+                    System.out.println("Could not sync the write ahead log: " + e.getMessage());
+                }
+            }, groupDelay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Forces every commit written so far to disk
+     */
+    public synchronized void sync() throws IOException {
+        if (pendingSync != null) {
+            pendingSync.cancel(false);
+            pendingSync = null;
+        }
+        if (unsynced > 0) {
+            Logger.log("Syncing " + unsynced + " commit(s) to the write ahead log");
+            getChannel().force(false);
+            unsynced = 0;
+            unforced = false;
+        }
+    }
+
+    /**
+     * Writes the records collected in memory and forces the whole log to disk, including images of the running
+     * statement. Called before a changed page is written to database.bin so the log reaches the disk first
+     */
+    public synchronized void force() throws IOException {
+        write();
+        if (unforced) {
+            if (pendingSync != null) {
+                pendingSync.cancel(false);
+                pendingSync = null;
+            }
+            getChannel().force(false);
+            unsynced = 0;
+            unforced = false;
+        }
+    }
+
+    /**
+     * Empties the log, called once database.bin and catalog.bin hold everything in it
+     */
+    public synchronized void truncate() throws IOException {
+        if (pendingSync != null) {
+            pendingSync.cancel(false);
+            pendingSync = null;
+        }
+        unsynced = 0;
+        unforced = false;
+        uncommitted = false;
+        pending.reset();
+        FileChannel fileChannel = getChannel();
+        fileChannel.truncate(0);
+        fileChannel.force(true);
+    }
+
+    public synchronized void close() throws IOException {
+        write();
+        sync();
+        if (syncer != null) {
+            syncer.shutdownNow();
+            syncer = null;
+        }
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Copies the committed changes in the log into the database files
+     * @param pageFile database.bin
+     * @param catalogPath the location of catalog.bin
+     * @return the number of statements recovered
+     */
+    public synchronized int recover(PageFile pageFile, String catalogPath) throws IOException {
+        FileChannel fileChannel = getChannel();
+        ByteBuffer log = ByteBuffer.allocate((int) fileChannel.size());
+        while (log.hasRemaining() && fileChannel.read(log, log.position()) >= 0) {
+        }
+        log.flip();
+
+        List<Integer> addresses = new ArrayList<>();
+        List<ByteBuffer> images = new ArrayList<>();
+        byte[] catalog = null;
+        byte[] committedCatalog = null;
+        int statements = 0;
+        while (log.remaining() >= 1 + Integer.BYTES) {
+            byte type = log.get();
+            int length = log.getInt();
+            if (length < 0 || log.remaining() < length + Integer.BYTES) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            log.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != log.getInt()) {
+                break;
+            }
+            if (type == PAGE) {
+                ByteBuffer record = ByteBuffer.wrap(payload);
+                addresses.add(record.getInt());
+                images.add(record.slice());
+            } else if (type == CATALOG) {
+                catalog = payload;
+            } else if (type == COMMIT) {
+                for (int i = 0; i < addresses.size(); i++) {
+                    pageFile.write(addresses.get(i), images.get(i));
+                }
+                addresses.clear();
+                images.clear();
+                committedCatalog = catalog;
+                statements++;
+            } else {
+                break;
+            }
+        }
+        if (committedCatalog != null) {
+            pageFile.force();
+            try (FileOutputStream out = new FileOutputStream(catalogPath)) {
+                out.write(committedCatalog);
+                out.getFD().sync();
+            }
+        }
+        truncate();
+        return statements;
+    }
+}